@@ -0,0 +1,218 @@
+package binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import domain.response.Response;
+import domain.response.StandardResponse;
+
+/**
+ * Reads requests from and writes responses to the compact binary protocol a client may negotiate when connecting.
+ * All numbers are big-endian; a string is a byte length followed by that many UTF-8 bytes.
+ *
+ * Request:
+ *   byte command (see COMMANDS; bit 0x80 means an int64 id follows) | [int64 id] | string robot | arguments
+ *   arguments: launch: string kind, int16 shields, int16 shots; forward/back: int32 steps; turn: byte 1 right, 0 left
+ *   A request of the single byte PING or PONG is a heartbeat and has no id or robot.
+ *
+ * Response:
+ *   byte type (bit 0x80 means an int64 id follows) | [int64 id] | body
+ *   ROBOT_RESPONSE:       string message, state
+ *   ERROR:                string message
+ *   ENEMY_STATE_CHANGED:  string robotName, state
+ *   ENEMY_FIRED:          string robotName, int32 distance
+ *   REMOVE_ENEMY:         string robotName
+ *   state: int32 x, int32 y, byte direction (see DIRECTIONS), int16 shields, int16 shots, byte status (see STATUSES)
+ */
+public class BinaryHandler {
+    public static final int ROBOT_RESPONSE = 1;
+    public static final int ERROR = 2;
+    public static final int ENEMY_STATE_CHANGED = 3;
+    public static final int ENEMY_FIRED = 4;
+    public static final int REMOVE_ENEMY = 5;
+
+    public static final int PING = 0x7E;
+    public static final int PONG = 0x7F;
+
+    private static final int HAS_ID = 0x80;
+    private static final String[] COMMANDS = {
+        "connect", "launch", "quit", "state", "fire", "look", "repair", "reload", "forward", "back", "turn"
+    };
+    private static final String[] DIRECTIONS = {"NORTH", "EAST", "SOUTH", "WEST"};
+    private static final String[] STATUSES = {"NORMAL", "RELOAD", "REPAIR"};
+
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+
+    /**
+     * This function deserializes a binary request into a JsonNode shaped like a JSON request,
+     * with "command", "robot", "arguments" and, if present, "id".
+     *
+     * @param bytes  the buffer holding the request
+     * @param offset the start of the request in the buffer
+     * @param length the length of the request
+     * @return the request as a JsonNode, or null if the bytes are not a valid request
+     */
+    public static JsonNode deserializeRequest(byte[] bytes, int offset, int length) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+        try {
+            int header = in.readUnsignedByte();
+            int commandCode = header & ~HAS_ID;
+            if (commandCode >= COMMANDS.length) {
+                return null;
+            }
+            String command = COMMANDS[commandCode];
+            ObjectNode request = nodeFactory.objectNode();
+            request.put("command", command);
+            if ((header & HAS_ID) != 0) {
+                request.put("id", in.readLong());
+            }
+            request.put("robot", readString(in));
+
+            ArrayNode arguments = request.putArray("arguments");
+            switch (command) {
+                case "launch":
+                    arguments.add(readString(in));
+                    arguments.add(in.readShort());
+                    arguments.add(in.readShort());
+                    break;
+                case "forward":
+                case "back":
+                    arguments.add(String.valueOf(in.readInt()));
+                    break;
+                case "turn":
+                    arguments.add(in.readByte() == 1 ? "right" : "left");
+                    break;
+                default:
+                    break;
+            }
+            return request;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * This function serializes a Response object into the binary protocol.
+     * Only the frequent, small responses have a binary form: robot responses that carry nothing but a message
+     * and the robot state, simple errors and the events broadcast to other robots.
+     *
+     * @param response The Response object to be serialized.
+     * @return The binary form of the response, or null if the response has no binary form and must be sent as JSON.
+     */
+    public static byte[] serializeResponse(Response response) {
+        HashMap<?, ?> data = response.getData();
+        Object id = response.getId();
+        if (data == null || (id != null && !(id instanceof Long))) {
+            return null;
+        }
+        Object message = data.get("message");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            if ("ERROR".equals(response.getResult()) && data.size() == 1 && message instanceof String) {
+                writeHeader(out, ERROR, id);
+                writeString(out, (String) message);
+            }
+            else if ("enemy state changed".equals(message) && data.size() == 3) {
+                writeHeader(out, ENEMY_STATE_CHANGED, id);
+                writeString(out, (String) data.get("robotName"));
+                if (!writeState(out, (HashMap<?, ?>) data.get("robotState"))) {
+                    return null;
+                }
+            }
+            else if ("an enemy fired gun".equals(message) && data.size() == 3) {
+                writeHeader(out, ENEMY_FIRED, id);
+                writeString(out, (String) data.get("robotName"));
+                out.writeInt((Integer) data.get("distance"));
+            }
+            else if ("remove enemy".equals(message) && data.size() == 2) {
+                writeHeader(out, REMOVE_ENEMY, id);
+                writeString(out, (String) data.get("robotName"));
+            }
+            else if (response instanceof StandardResponse && "robot".equals(((StandardResponse) response).getType())
+                    && (data.isEmpty() || (data.size() == 1 && message instanceof String))) {
+                writeHeader(out, ROBOT_RESPONSE, id);
+                writeString(out, message == null ? "" : (String) message);
+                if (!writeState(out, ((StandardResponse) response).getState())) {
+                    return null;
+                }
+            }
+            else {
+                return null;
+            }
+        } catch (IOException | ClassCastException e) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the response type and, if there is one, the id of the request.
+     */
+    private static void writeHeader(DataOutputStream out, int type, Object id) throws IOException {
+        if (id == null) {
+            out.writeByte(type);
+            return;
+        }
+        out.writeByte(type | HAS_ID);
+        out.writeLong((Long) id);
+    }
+
+    /**
+     * Writes the state of a robot.
+     *
+     * @return false if the state holds a value the binary protocol cannot express
+     */
+    private static boolean writeState(DataOutputStream out, HashMap<?, ?> state) throws IOException {
+        if (state == null) {
+            return false;
+        }
+        int direction = indexOf(DIRECTIONS, state.get("direction"));
+        int status = indexOf(STATUSES, state.get("status"));
+        if (direction == -1 || status == -1) {
+            return false;
+        }
+        int[] position = (int[]) state.get("position");
+        out.writeInt(position[0]);
+        out.writeInt(position[1]);
+        out.writeByte(direction);
+        out.writeShort((Integer) state.get("shields"));
+        out.writeShort((Integer) state.get("shots"));
+        out.writeByte(status);
+        return true;
+    }
+
+    private static int indexOf(String[] values, Object value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) {
+            throw new IOException("String too long for the binary protocol");
+        }
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedByte()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
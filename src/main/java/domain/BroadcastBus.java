@@ -0,0 +1,387 @@
+package domain;
+
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import domain.PendingStateChanges.StateChange;
+import domain.configuration.ConfigurationManager;
+import domain.response.Response;
+import domain.response.StandardResponse;
+import domain.world.Robot;
+import domain.world.World;
+import domain.world.util.Position;
+import server.Broadcast;
+import server.ServerMetrics;
+
+/**
+ * Sends events about one robot to the clients of every other robot in the world.
+ * An event is serialized once and the same bytes are queued for every client that uses the same wire format,
+ * so the cost of an event hardly grows with the number of robots that receive it.
+ *
+ * Events that happen at a place, such as a robot moving or firing, only go to robots within the interest radius
+ * of that place, so traffic grows with the number of robots near each other rather than with the square of
+ * all robots. Spectator connections receive every event, wherever it happens.
+ *
+ * State changes may be held back for a short coalescing window, so a robot that moves many times within the window
+ * causes a single update with its latest state. Every other event, such as a shot, a hit, a launch or a removal,
+ * is sent straight away, after any held back state changes, so clients never see events out of order.
+ *
+ * Every event is appended to the EventStream of the world, which numbers it. A client only receives events once it
+ * has joined the world, which sends it a snapshot of the robots in the world taken between two events.
+ *
+ * Publishing an event only puts it on the EventRing of the world; the consumer thread of the ring serializes it,
+ * picks the recipients and queues it for them, so the command that caused the event does not wait for any of that.
+ */
+public class BroadcastBus {
+
+    private static volatile boolean coalescing = false;
+    private static ScheduledExecutorService flusher;
+
+    /**
+     * Starts holding back state changes for the given window, sending the latest state of each robot when it ends.
+     *
+     * @param windowMillis  the length of the coalescing window in milliseconds
+     * @param worldRegistry the worlds whose held back state changes are sent when the window ends
+     */
+    public static synchronized void startCoalescing(int windowMillis, WorldRegistry worldRegistry) {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "broadcast-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleAtFixedRate(() -> {
+            for (World world : worldRegistry.getWorlds()) {
+                flushStateChanges(world);
+            }
+        }, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        coalescing = true;
+    }
+
+    /**
+     * Creates the ring that carries the events of one world to its clients, with the configured number of slots.
+     *
+     * @param world the world whose events the ring carries
+     * @return the event ring
+     */
+    public static EventRing createEventRing(World world) {
+        return new EventRing(ConfigurationManager.getEventRingSize(), "world-events", event -> dispatch(world, event));
+    }
+
+    /**
+     * Sends an event to every client that has launched a robot and every spectator,
+     * except the client the event comes from.
+     *
+     * @param event       the event to send
+     * @param coalesceKey the name of the robot the event is about if a newer event about it may replace this one,
+     *                    or null if the event must be delivered
+     * @param sender      the client the event comes from; the event goes to the other clients in its world
+     */
+    public static void publish(Response event, String coalesceKey, ClientHandler sender) {
+        publishNear(event, coalesceKey, sender, null);
+    }
+
+    /**
+     * Sends a robot entering the world to every client that has launched a robot and every spectator,
+     * except the client of that robot.
+     *
+     * @param robot  the robot
+     * @param sender the client of the robot
+     */
+    public static void publishArrival(Robot robot, ClientHandler sender) {
+        World world = sender.getWorld();
+        boolean locked = lockHeldStateChanges(world);
+        try {
+            EventRing ring = world.getEventRing();
+            long sequence = ring.next();
+            WorldEvent event = ring.get(sequence);
+            event.type = WorldEvent.ARRIVAL;
+            event.sender = sender;
+            event.robotName = robot.getName();
+            event.robotKind = robot.getKind();
+            event.copyState(robot);
+            ring.publish(sequence);
+        } finally {
+            unlockHeldStateChanges(world, locked);
+        }
+    }
+
+    /**
+     * Sends a robot leaving the world to every client that has launched a robot and every spectator,
+     * except the client of that robot.
+     *
+     * @param event     the event to send
+     * @param robotName the name of the robot
+     * @param sender    the client of the robot
+     */
+    public static void publishDeparture(Response event, String robotName, ClientHandler sender) {
+        World world = sender.getWorld();
+        boolean locked = lockHeldStateChanges(world);
+        try {
+            EventRing ring = world.getEventRing();
+            long sequence = ring.next();
+            WorldEvent slot = ring.get(sequence);
+            slot.type = WorldEvent.DEPARTURE;
+            slot.sender = sender;
+            slot.response = event;
+            slot.robotName = robotName;
+            ring.publish(sequence);
+        } finally {
+            unlockHeldStateChanges(world, locked);
+        }
+    }
+
+    /**
+     * Makes a client that has just launched a robot, or connected as a spectator, receive the events of its world.
+     * The client is sent a snapshot of the other robots in the world, tagged with the sequence number of the last
+     * event it includes, and from then on every later event meant for it. Does nothing if the client has already joined.
+     *
+     * @param joiner the joining client
+     */
+    public static void join(ClientHandler joiner) {
+        World world = joiner.getWorld();
+        boolean locked = lockHeldStateChanges(world);
+        try {
+            EventRing ring = world.getEventRing();
+            long sequence = ring.next();
+            WorldEvent event = ring.get(sequence);
+            event.type = WorldEvent.JOIN;
+            event.sender = joiner;
+            event.robotName = joiner.getRobot() == null ? null : joiner.getRobot().getName();
+            ring.publish(sequence);
+        } finally {
+            unlockHeldStateChanges(world, locked);
+        }
+    }
+
+    /**
+     * Sends an event that happened at a place to every robot within the interest radius of that place
+     * and to every spectator, except the client the event comes from.
+     *
+     * @param event       the event to send
+     * @param coalesceKey the name of the robot the event is about if a newer event about it may replace this one,
+     *                    or null if the event must be delivered
+     * @param sender      the client the event comes from; the event goes to the other clients in its world
+     * @param origin      where the event happened, or null if it concerns the whole world
+     */
+    public static void publishNear(Response event, String coalesceKey, ClientHandler sender, Position origin) {
+        World world = sender.getWorld();
+        boolean locked = lockHeldStateChanges(world);
+        try {
+            EventRing ring = world.getEventRing();
+            long sequence = ring.next();
+            WorldEvent slot = ring.get(sequence);
+            slot.type = WorldEvent.COMBAT;
+            slot.sender = sender;
+            slot.response = event;
+            slot.coalesceKey = coalesceKey;
+            slot.origin = origin;
+            ring.publish(sequence);
+        } finally {
+            unlockHeldStateChanges(world, locked);
+        }
+    }
+
+    /**
+     * Handles an event taken off the EventRing of a world. Called on the consumer thread of the ring only,
+     * so events are appended to the world's EventStream, and queued for clients, one at a time and in order.
+     * The event goes to the world of the ring even if its sender has moved to another world since it was published.
+     *
+     * @param world the world that owns the ring
+     * @param event the event
+     */
+    static void dispatch(World world, WorldEvent event) {
+        EventStream stream = world.getEventStream();
+        switch (event.type) {
+            case WorldEvent.JOIN:
+                // a spectator that has moved to another world joins that world with its own event.
+                if (event.sender.getWorld() == world && !event.sender.hasJoined()) {
+                    event.sender.send(stream.snapshot(event.robotName));
+                    event.sender.setJoined(true);
+                }
+                return;
+            case WorldEvent.STATE:
+                HashMap<String, Object> state = event.stateAsHashMap();
+                String robotName = event.robotName;
+                Response stateChanged = new StandardResponse(new HashMap<>(){{
+                    put("message", "enemy state changed");
+                    put("robotName", robotName);
+                    put("robotState", state);
+                }}, null);
+                fanOut(world, Broadcast.ofState(stateChanged, robotName, state), event.sender, event.origin);
+                return;
+            case WorldEvent.ARRIVAL:
+                HashMap<String, Object> arrivalState = event.stateAsHashMap();
+                String arrivalName = event.robotName;
+                String arrivalKind = event.robotKind;
+                Response launched = new StandardResponse(new HashMap<>(){{
+                    put("message", "new robot launched into world");
+                    put("robotName", arrivalName);
+                    put("robotKind", arrivalKind);
+                    put("robotState", arrivalState);
+                }}, null, "gui");
+                fanOut(world, Broadcast.ofArrival(launched, arrivalName, arrivalKind, arrivalState), event.sender, null);
+                return;
+            case WorldEvent.DEPARTURE:
+                fanOut(world, Broadcast.ofDeparture(event.response, event.robotName), event.sender, null);
+                return;
+            default:
+                fanOut(world, new Broadcast(event.response, event.coalesceKey), event.sender, event.origin);
+        }
+    }
+
+    private static void fanOut(World world, Broadcast broadcast, ClientHandler sender, Position origin) {
+        int radius = ConfigurationManager.getInterestRadius();
+        boolean filtered = origin != null && radius > 0;
+        long radiusSquared = (long) radius * radius;
+        world.getEventStream().append(broadcast);
+        for (ClientHandler cH : world.getClientRegistry().getClientHandlers()) {
+            if (cH == sender || !cH.hasJoined()) {
+                continue;
+            }
+            Robot robot = cH.getRobot();
+            if (cH.isSpectator() || !filtered || isWithin(robot.getPosition(), origin, radiusSquared)) {
+                cH.send(broadcast);
+                ServerMetrics.BROADCASTS_SENT.increment();
+            }
+            else {
+                ServerMetrics.BROADCASTS_FILTERED.increment();
+            }
+        }
+    }
+
+    /**
+     * Checks if a position lies within a distance of another.
+     *
+     * @param position      the position to check
+     * @param origin        the position to measure from
+     * @param radiusSquared the square of the distance
+     * @return true if the position is within the distance, false otherwise
+     */
+    private static boolean isWithin(Position position, Position origin, long radiusSquared) {
+        long dx = position.getX() - origin.getX();
+        long dy = position.getY() - origin.getY();
+        return dx * dx + dy * dy <= radiusSquared;
+    }
+
+    /**
+     * Tells the robots near a robot, and every spectator, the new state of the robot.
+     * While coalescing, the state is held back until the window ends and replaced by any later state of the robot.
+     *
+     * @param sender the client of the robot
+     * @param robot  the robot whose state changed
+     */
+    public static void publishStateChange(ClientHandler sender, Robot robot) {
+        if (coalescing) {
+            if (sender.getWorld().getPendingStateChanges().hold(sender, robot)) {
+                ServerMetrics.STATE_CHANGES_COALESCED.increment();
+            }
+            return;
+        }
+        publishState(sender.getWorld(), sender, robot.getName(), robot.getState(), robot.getPosition());
+    }
+
+    /**
+     * Tells the robots near a robot, and every spectator, the new state of the robot straight away,
+     * even while coalescing, e.g. because the robot was hit.
+     *
+     * @param sender the client of the robot
+     * @param robot  the robot whose state changed
+     */
+    public static void publishStateChangeNow(ClientHandler sender, Robot robot) {
+        World world = sender.getWorld();
+        boolean locked = lockHeldStateChanges(world);
+        try {
+            world.getPendingStateChanges().discard(robot);
+            flushStateChanges(world);
+            publishState(world, sender, robot.getName(), robot.getState(), robot.getPosition());
+        } finally {
+            unlockHeldStateChanges(world, locked);
+        }
+    }
+
+    /**
+     * Sends every state change of a world that is being held back.
+     *
+     * @param world the world
+     */
+    public static void flushStateChanges(World world) {
+        if (!coalescing) {
+            return;
+        }
+        world.getPendingStateChanges().flush(stateChange -> publishHeldState(world, stateChange));
+    }
+
+    /**
+     * Takes the flush lock of a world and sends its held back state changes, if state changes are being held back.
+     * An event published before the lock is released therefore reaches the ring after every state change another
+     * thread has taken off the map, even one that thread has not finished publishing. When nothing is held back,
+     * nothing is locked and publishers only contend on the ring.
+     *
+     * @param world the world to publish to
+     * @return true if the lock was taken and must be released with unlockHeldStateChanges
+     */
+    private static boolean lockHeldStateChanges(World world) {
+        if (!coalescing) {
+            return false;
+        }
+        world.getPendingStateChanges().lock();
+        flushStateChanges(world);
+        return true;
+    }
+
+    /**
+     * Releases the flush lock taken by lockHeldStateChanges.
+     *
+     * @param world  the world
+     * @param locked what lockHeldStateChanges returned
+     */
+    private static void unlockHeldStateChanges(World world, boolean locked) {
+        if (locked) {
+            world.getPendingStateChanges().unlock();
+        }
+    }
+
+    /**
+     * Publishes the state of a robot to the EventRing of its world, copying the state into the slot.
+     *
+     * @param world     the world of the robot
+     * @param sender    the client of the robot
+     * @param robotName the name of the robot
+     * @param state     the state of the robot
+     * @param origin    the position of the robot
+     */
+    private static void publishState(World world, ClientHandler sender, String robotName, HashMap<String, Object> state, Position origin) {
+        EventRing ring = world.getEventRing();
+        long sequence = ring.next();
+        WorldEvent event = ring.get(sequence);
+        event.type = WorldEvent.STATE;
+        event.sender = sender;
+        event.robotName = robotName;
+        event.copyState(state);
+        event.origin = origin;
+        ring.publish(sequence);
+    }
+
+    /**
+     * Publishes a held back state change to the EventRing of its world, copying it out of its slot.
+     *
+     * @param world       the world of the robot
+     * @param stateChange the state change
+     */
+    private static void publishHeldState(World world, StateChange stateChange) {
+        EventRing ring = world.getEventRing();
+        long sequence = ring.next();
+        WorldEvent event = ring.get(sequence);
+        event.type = WorldEvent.STATE;
+        event.sender = stateChange.sender;
+        event.robotName = stateChange.robotName;
+        event.copyState(stateChange);
+        event.origin = stateChange.origin;
+        ring.publish(sequence);
+    }
+}
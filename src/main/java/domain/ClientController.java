@@ -38,10 +38,12 @@ public class ClientController {
         try {
             Command newCommand = Command.create(request);
             Response response = newCommand.execute(this, world);
+            response.setId(newCommand.getId());
             String responseJsonString = JsonHandler.serializeResponse(response);
             return responseJsonString;
         } catch (IllegalArgumentException e) {
             Response response = new ErrorResponse("Missing commands in body of request");
+            response.setId(Command.getRequestId(request));
             String responseJsonString = JsonHandler.serializeResponse(response);
             return responseJsonString;
         }
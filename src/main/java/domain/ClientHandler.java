@@ -4,16 +4,29 @@ package domain;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PrintStream;
 import java.net.Socket;
-import java.util.List;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
+import binary.BinaryHandler;
 import domain.commands.Command;
+import domain.commands.ConnectCommand;
 import domain.commands.LaunchCommand;
+import domain.commands.QuitCommand;
+import domain.configuration.ConfigurationManager;
 import domain.response.*;
 import domain.world.Robot;
 import domain.world.World;
 import json.JsonHandler;
+import server.Broadcast;
+import server.ConnectionManager;
+import server.FrameDecoder;
+import server.Lane;
+import server.MessageEncoder;
+import server.Transport;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -24,41 +37,85 @@ import java.util.HashMap;
  */
 public class ClientHandler implements Runnable {
 
-    public static ArrayList<ClientHandler> clientHanders = new ArrayList<>();
+    private static final AtomicLong nextConnectionId = new AtomicLong(1);
+
+    private final long connectionId = nextConnectionId.getAndIncrement();
     // public static ArrayList<Robot> robots = new ArrayList<>();
     private Socket socket;
     private String robotName;
-    private World world;
+    private final WorldRegistry worldRegistry;
+    // the world changes at most once, when the client names another world while connecting.
+    private volatile World world;
     private Robot robot;
     private String currentCommand;
-    private boolean launched = false;
+    private volatile boolean launched = false;
+    // a connection may be reported closed by more than one path, but leaves its world only once.
+    private final AtomicBoolean disconnected = new AtomicBoolean(false);
 
     // use OutputStream & InputStream instead of bufferedReader & bufferedWriter
     private OutputStream outputStream;
     private InputStream inputStream;
 
-    private PrintStream out;
+    private Transport transport;
+    private ConnectionManager connectionManager;
+    // when the client last sent a request, and when it last sent anything at all, including heartbeats, as System.nanoTime.
+    private volatile long lastActivity = System.nanoTime();
+    private volatile long lastHeard = lastActivity;
+    // whether the server sends this client pings, and when it last did.
+    private volatile boolean heartbeat = false;
+    private volatile long lastPingSent = lastActivity;
+    // spectators receive every broadcast, wherever in the world it happens.
+    private volatile boolean spectator = false;
+    // a client receives the events of its world only once it has been sent a snapshot of it.
+    private volatile boolean joined = false;
+    // set if the client receives the state changes of other robots as deltas.
+    private volatile DeltaTracker deltaTracker;
+
+    // requests are split out of the received bytes by the frame decoder, responses are encoded in the negotiated format.
+    private final FrameDecoder frameDecoder = new FrameDecoder(ConfigurationManager.getFraming(), ConfigurationManager.getMaxFrameSize());
+    private final FrameDecoder.FrameListener requestListener = this::processFrame;
+    private final MessageEncoder messageEncoder = new MessageEncoder();
 
     /**
      * Constructs a new ClientHandler object.
      * Initializes the socket, sets up input/output streams, and handles the initial connect request from the client.
      *
-     * @param socket the client socket
-     * @param world  the world instance
+     * @param socket    the client socket
+     * @param transport the connection responses are written to
+     * @param worldRegistry the worlds hosted by the server; the client starts in the default one
+     * @param connectionManager the connection manager that admitted the client
      */
-    public ClientHandler(Socket socket, World world) {
+    public ClientHandler(Socket socket, Transport transport, WorldRegistry worldRegistry, ConnectionManager connectionManager) {
+        this.worldRegistry = worldRegistry;
+        this.world = worldRegistry.getDefaultWorld();
         try {
             this.socket = socket;
-            this.world = world;
-            clientHanders.add(this);
+            world.getClientRegistry().register(this);
             this.outputStream = socket.getOutputStream();
             this.inputStream = socket.getInputStream();
-            this.out = new PrintStream(socket.getOutputStream());
+            this.transport = transport;
+            this.connectionManager = connectionManager;
         } 
         catch (IOException e) {
             closeEverything(socket, inputStream, outputStream);
         }
     }
+
+    /**
+     * Constructs a new ClientHandler object for a client whose connection is served by an event loop.
+     * The event loop calls readRequests when the channel is readable, so there are no streams to set up.
+     *
+     * @param transport the connection to the client
+     * @param worldRegistry the worlds hosted by the server; the client starts in the default one
+     * @param connectionManager the connection manager that admitted the client
+     */
+    public ClientHandler(Transport transport, WorldRegistry worldRegistry, ConnectionManager connectionManager) {
+        this.transport = transport;
+        this.worldRegistry = worldRegistry;
+        this.world = worldRegistry.getDefaultWorld();
+        this.connectionManager = connectionManager;
+        world.getClientRegistry().register(this);
+    }
     
     /**
      * Returns the input stream associated with the client socket.
@@ -105,13 +162,41 @@ public class ClientHandler implements Runnable {
         return this.world;
     }
 
+    /**
+     * Records whether the client has launched a robot.
+     * The first launch tells the connection manager, so the connection stops counting as unlaunched.
+     *
+     * @param launched true if the client has launched a robot
+     */
     public void setLaunched(boolean launched) {
         this.launched = launched;
+        if (launched && connectionManager != null) {
+            connectionManager.launched(this);
+        }
     }
 
     public boolean getLaunched() {
         return launched;
     }
+
+    /**
+     * Returns when the client last sent a request.
+     *
+     * @return the time of the last request, as System.nanoTime
+     */
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * Tells the client why it is being disconnected and closes the connection once the message has been written.
+     *
+     * @param reason the reason for the disconnection
+     */
+    public void evict(String reason) {
+        send(new ErrorResponse(reason));
+        closeEverything(socket, inputStream, outputStream);
+    }
     
     /**
      * Runs the client handler thread.
@@ -120,90 +205,402 @@ public class ClientHandler implements Runnable {
      */
     @Override
     public void run() {
-        String requestFromCleint;
         while (socket.isConnected()) {
             try {
-                // get request from client.
-                requestFromCleint = getRequestFromClient();
-                System.out.println("Request from client: " + requestFromCleint);
-                if (JsonHandler.isJsonString(requestFromCleint)) {
-                    handleRequest(requestFromCleint); 
-                }
+                // get requests from client.
+                readRequests();
             } catch (IOException e) {
                 closeEverything(socket, inputStream, outputStream);
                 break;
             }
         }
         // if client disconnects unexpecedly.
+        disconnect();
+    }
+
+    /**
+     * Processes a frame received from the client.
+     * Once the binary protocol has been negotiated, frames hold binary requests; before that they hold JSON.
+     *
+     * @param bytes  the buffer holding the frame
+     * @param offset the start of the frame in the buffer
+     * @param length the length of the frame
+     */
+    public void processFrame(byte[] bytes, int offset, int length) {
+        lastHeard = System.nanoTime();
+        if (handleHeartbeat(bytes, offset, length)) {
+            return;
+        }
+        lastActivity = lastHeard;
+        if (messageEncoder.isBinary()) {
+            JsonNode request = BinaryHandler.deserializeRequest(bytes, offset, length);
+            if (request == null) {
+                sendUnsupportedCommand(null);
+                return;
+            }
+            handleRequest(request);
+            return;
+        }
+        processRequest(new String(bytes, offset, length));
+    }
+
+    /**
+     * Processes a JSON request received from the client.
+     * Requests that are not valid JSON are ignored.
+     *
+     * @param request the request string from the client
+     */
+    public void processRequest(String request) {
+        System.out.println("Request from client: " + request);
+        if (JsonHandler.isJsonString(request)) {
+            handleRequest(request);
+        }
+    }
+
+    /**
+     * Answers a ping from the client with a pong, without parsing it as a request.
+     * A pong from the client needs no answer; receiving it is enough to know the client is alive.
+     *
+     * @param bytes  the buffer holding the frame
+     * @param offset the start of the frame in the buffer
+     * @param length the length of the frame
+     * @return true if the frame was a heartbeat, false if it is a request
+     */
+    private boolean handleHeartbeat(byte[] bytes, int offset, int length) {
+        boolean ping;
+        if (messageEncoder.isBinary()) {
+            if (length != 1 || (bytes[offset] != BinaryHandler.PING && bytes[offset] != BinaryHandler.PONG)) {
+                return false;
+            }
+            ping = bytes[offset] == BinaryHandler.PING;
+        }
+        else {
+            if (length != 4 || bytes[offset] != 'p' || bytes[offset + 2] != 'n' || bytes[offset + 3] != 'g') {
+                return false;
+            }
+            if (bytes[offset + 1] != 'i' && bytes[offset + 1] != 'o') {
+                return false;
+            }
+            ping = bytes[offset + 1] == 'i';
+        }
+        if (ping) {
+            transport.send(messageEncoder.pong());
+        }
+        return true;
+    }
+
+    /**
+     * Makes this client a spectator, which receives every broadcast whatever its distance.
+     * Called while handling the connect request.
+     */
+    public void useSpectatorMode() {
+        spectator = true;
+    }
+
+    /**
+     * Records whether the client has been sent a snapshot of its world and now receives its events.
+     * Called by the consumer of the world's event ring.
+     *
+     * @param joined true if the client has joined
+     */
+    public void setJoined(boolean joined) {
+        this.joined = joined;
+    }
+
+    /**
+     * Checks if the client receives the events of its world.
+     *
+     * @return true if the client has joined its world
+     */
+    public boolean hasJoined() {
+        return joined;
+    }
+
+    /**
+     * Checks if this client is a spectator.
+     *
+     * @return true if the client connected as a spectator
+     */
+    public boolean isSpectator() {
+        return spectator;
+    }
+
+    /**
+     * Turns on server pings for this client. Called while handling the connect request.
+     */
+    public void useHeartbeat() {
+        heartbeat = true;
+    }
+
+    /**
+     * Checks if the server sends this client pings.
+     *
+     * @return true if the client asked for heartbeats when connecting
+     */
+    public boolean usesHeartbeat() {
+        return heartbeat;
+    }
+
+    /**
+     * Sends the client a ping it must answer with a pong.
+     */
+    public void sendPing() {
+        lastPingSent = System.nanoTime();
+        transport.send(messageEncoder.ping());
+    }
+
+    /**
+     * Returns when the server last sent this client a ping.
+     *
+     * @return the time of the last ping, as System.nanoTime
+     */
+    public long getLastPingSent() {
+        return lastPingSent;
+    }
+
+    /**
+     * Returns when the client last sent anything, including heartbeats.
+     *
+     * @return the time of the last frame, as System.nanoTime
+     */
+    public long getLastHeard() {
+        return lastHeard;
+    }
+
+    /**
+     * Cleans up after a client that has disconnected.
+     * Closes the connection, removes the client handler and removes its robot from the world.
+     * If the robot was still in the world, e.g. because the client died instead of quitting,
+     * the other clients are told to remove it. Does nothing if the client has already been disconnected.
+     */
+    public void disconnect() {
+        if (!disconnected.compareAndSet(false, true)) {
+            return;
+        }
         closeEverything(socket, inputStream, outputStream);
         removeClientHandler();
-        world.removeRobot(robot);
+        World left = world;
+        WorldActor worldActor = left.getWorldActor();
+        if (worldActor != null) {
+            // the robot leaves the world on the thread that owns it, after the commands the client sent before.
+            worldActor.execute(() -> {
+                removeRobotFromWorld();
+                worldRegistry.leave(left);
+            });
+        }
+        else {
+            removeRobotFromWorld();
+            worldRegistry.leave(left);
+        }
+        messageEncoder.close();
+        if (connectionManager != null) {
+            connectionManager.release(this);
+        }
+    }
+
+    /**
+     * Removes the robot of a disconnected client from the world, if it is still there, and tells the other clients.
+     */
+    private void removeRobotFromWorld() {
+        if (robot != null && world.getRobots().contains(robot)) {
+            world.removeRobot(robot);
+            new QuitCommand().sendQuit(this, world, robot);
+        }
+    }
+
+    /**
+     * Reads whatever the client has sent on the socket and handles every complete request in it.
+     * A single read may contain several requests; they are handled in the order they were sent.
+     *
+     * @throws IOException if an I/O error occurs while reading, or the client sent an invalid frame
+     */
+    public void readRequests() throws IOException {
+        int bytesRead = frameDecoder.readFrom(inputStream);
+        if (bytesRead == -1) { throw new IOException("Client disconnected");}
+        frameDecoder.decode(requestListener);
     }
 
     /**
-     * Retrieves a request from the client.
+     * Reads whatever the client has sent on a non-blocking channel and handles every complete request in it.
      *
-     * @return the request string from the client
-     * @throws IOException if an I/O error occurs while reading the request
+     * @param channel the channel of the client
+     * @throws IOException if the client disconnected, the read failed or the client sent an invalid frame
      */
-    public String getRequestFromClient() throws IOException {
-        byte[] buffer = new byte[1024];
-        int bytesRead = inputStream.read(buffer);
+    public void readRequests(ReadableByteChannel channel) throws IOException {
+        int bytesRead = frameDecoder.readFrom(channel);
         if (bytesRead == -1) { throw new IOException("Client disconnected");}
-        String request = new String(buffer, 0, bytesRead); // No data was read, so return an empty string
-        return request; 
+        frameDecoder.decode(requestListener);
     }
 
     /**
      * Handles a request from the client.
      * Executes the corresponding command and sends the response back to the client.
+     * If the request has an "id", the response carries the same id, so clients can send
+     * many requests without waiting and still match every response to its request.
      *
      * @param request the request string from the client
      */
     public void handleRequest(String request) {
         try {
-            Command newCommand = Command.create(request);
-            Response response = newCommand.execute(this, world);
-
-            String responseJsonString = JsonHandler.serializeResponse(response);
-            
-            sendToClient(responseJsonString);
-
-            // if command is 'launch', send a list of all robots currently in world
-            if (robot != null && newCommand instanceof LaunchCommand) {                
-                List<HashMap<String, Object>> robotsList = new ArrayList<>();
-
-                for (ClientHandler cH: ClientHandler.clientHanders) {
-                    if (cH.getRobot() != null && cH!= this) { 
-                        HashMap<String, Object> robotInfo = new HashMap<>();
-                        robotInfo.put("robotName", cH.getRobot().getName());
-                        robotInfo.put("robotKind", cH.getRobot().getKind());
-                        robotInfo.put("robotState", cH.getRobot().getState());
-                        robotsList.add(robotInfo);
-                    }
-                }
-                
-                Response message = new StandardResponse(new HashMap<>(){{
-                    put("message", "robots currently in world");
-                    put("robots", robotsList);
-                }}, null, "gui");
-                sendToClient(JsonHandler.serializeResponse(message));
-            }
-
-            // if command is 'quit' disconnect everything.
-            if (currentCommand.equals("quit")) {
-                closeEverything(getSocket(), inputStream, outputStream);
-            }
+            handleCommand(Command.create(request));
+        } 
+        catch (IllegalArgumentException e) {
+            sendUnsupportedCommand(Command.getRequestId(request));
+        }
+        catch (NullPointerException e) {}
+    }
 
+    /**
+     * Handles a request from the client that has already been parsed, e.g. a decoded binary request.
+     *
+     * @param request the parsed request
+     */
+    public void handleRequest(JsonNode request) {
+        try {
+            handleCommand(Command.create(request));
         } 
         catch (IllegalArgumentException e) {
-            ErrorResponse errorResponse = new ErrorResponse("Unsupported command");
-            String responseJsonString = JsonHandler.serializeResponse(errorResponse);
-            sendToClient(responseJsonString);
+            sendUnsupportedCommand(Command.getRequestId(request));
         }
         catch (NullPointerException e) {}
     }
 
+    /**
+     * Executes a command and sends the response, and any follow-up messages, back to the client.
+     * If the world is owned by an actor, the command is submitted to it and the response is sent
+     * once the actor has executed it; the calling thread does not wait.
+     *
+     * @param newCommand the command to execute
+     */
+    private void handleCommand(Command newCommand) {
+        // a client that names a world moves to it before the connect command, and every later command, is executed.
+        if (newCommand instanceof ConnectCommand && ((ConnectCommand) newCommand).getWorldName() != null
+                && !enterWorld(((ConnectCommand) newCommand).getWorldName(), newCommand.getId())) {
+            return;
+        }
+        WorldActor worldActor = world.getWorldActor();
+        if (worldActor != null) {
+            worldActor.submit(() -> newCommand.execute(this, world))
+                    .whenComplete((response, error) -> completeCommand(newCommand, response, error));
+            return;
+        }
+        // the response and any follow-up messages leave in one write.
+        transport.cork();
+        try {
+            executeCommand(newCommand);
+        } finally {
+            transport.uncork();
+        }
+    }
+
+    /**
+     * Executes a command and queues the response, and any follow-up messages, for the client.
+     *
+     * @param newCommand the command to execute
+     */
+    private void executeCommand(Command newCommand) {
+        respond(newCommand, newCommand.execute(this, world));
+    }
+
+    /**
+     * Sends the response to a command the world actor has executed, or handles the exception the command threw
+     * the way handleRequest does when the command is executed on the connection's thread.
+     *
+     * @param newCommand the command
+     * @param response   the response to the command, or null if it threw
+     * @param error      the exception the command threw, or null if it did not
+     */
+    private void completeCommand(Command newCommand, Response response, Throwable error) {
+        if (error instanceof IllegalArgumentException) {
+            sendUnsupportedCommand(newCommand.getId());
+            return;
+        }
+        if (error != null) {
+            if (!(error instanceof NullPointerException)) {
+                error.printStackTrace();
+            }
+            return;
+        }
+        transport.cork();
+        try {
+            respond(newCommand, response);
+        } finally {
+            transport.uncork();
+        }
+    }
+
+    /**
+     * Queues the response to an executed command, and any follow-up messages, for the client.
+     *
+     * @param newCommand the command that was executed
+     * @param response   the response to the command
+     */
+    private void respond(Command newCommand, Response response) {
+        response.setId(newCommand.getId());
+
+        send(response);
+
+        // once a robot is launched, or a spectator connected, send a snapshot of the robots in the world and then its events.
+        if ((robot != null && newCommand instanceof LaunchCommand) || (spectator && newCommand instanceof ConnectCommand)) {
+            BroadcastBus.join(this);
+        }
+
+        // if command is 'quit' disconnect everything.
+        if (currentCommand.equals("quit")) {
+            closeEverything(getSocket(), inputStream, outputStream);
+        }
+    }
+
+    /**
+     * Moves the client to the named world, creating the world if the server does not host it yet.
+     * A client can only change worlds before it launches a robot. The world it leaves is reclaimed
+     * if no other client is in it.
+     *
+     * @param worldName the name of the world
+     * @param id        the id of the connect request, for the error response if the client cannot enter the world
+     * @return true if the client is now in the named world, false if it was told why it is not
+     */
+    private boolean enterWorld(String worldName, Object id) {
+        String error = null;
+        World named = null;
+        if (!WorldRegistry.isValidName(worldName)) {
+            error = "Invalid world name";
+        }
+        else if (worldRegistry.get(worldName) == world) {
+            return true;
+        }
+        else if (launched) {
+            error = "Cannot change worlds after launching a robot";
+        }
+        else if ((named = worldRegistry.enter(worldName)) == null) {
+            error = "No more worlds on this server";
+        }
+        if (error != null) {
+            ErrorResponse errorResponse = new ErrorResponse(error);
+            errorResponse.setId(id);
+            send(errorResponse);
+            return false;
+        }
+        World left = world;
+        left.getClientRegistry().unregister(this);
+        joined = false;
+        world = named;
+        named.getClientRegistry().register(this);
+        worldRegistry.leave(left);
+        return true;
+    }
+
+    /**
+     * Tells the client its request could not be turned into a command.
+     *
+     * @param id the id of the request, or null if it had none
+     */
+    private void sendUnsupportedCommand(Object id) {
+        ErrorResponse errorResponse = new ErrorResponse("Unsupported command");
+        errorResponse.setId(id);
+        send(errorResponse);
+    }
+
     /**
      * Sets the robot associated with the client handler.
      *
@@ -211,6 +608,9 @@ public class ClientHandler implements Runnable {
      */
     public void setRobot(Robot robot) {
         this.robot = robot;
+        if (robot != null) {
+            world.getClientRegistry().robotLaunched(this);
+        }
     }
 
     /**
@@ -232,20 +632,142 @@ public class ClientHandler implements Runnable {
     }
 
     /**
-     * Sends a message to the client.
+     * Sends a JSON message to the client.
+     * The message is queued and written by the writer of the connection, so this never blocks on a slow client.
      *
      * @param message the message to send
      */
     public void sendToClient(String message) {
-            this.out.println(message);
+            this.transport.send(messageEncoder.encode(message));
             System.out.println("Response sent: " + message);
     }
 
     /**
-     * Removes the client handler from the list of active client handlers.
+     * Sends a response to the client, encoded in the format the client negotiated.
+     *
+     * @param response the response to send
+     */
+    public void send(Response response) {
+        send(response, Lane.RESPONSE);
+    }
+
+    /**
+     * Sends a message to the client in the given lane, encoded in the format the client negotiated.
+     *
+     * @param response the message to send
+     * @param lane     the lane of the message, e.g. COMBAT for a hit the client's robot took
+     */
+    public void send(Response response, Lane lane) {
+        if (messageEncoder.isBinary()) {
+            this.transport.send(messageEncoder.encode(response), lane, null);
+            return;
+        }
+        String message = JsonHandler.serializeResponse(response);
+        this.transport.send(messageEncoder.encode(message), lane, null);
+        System.out.println("Response sent: " + message);
+    }
+
+    /**
+     * Sends a broadcast to the client, reusing the bytes already encoded for other clients with the same format.
+     *
+     * @param broadcast the broadcast to send
+     */
+    public void send(Broadcast broadcast) {
+        DeltaTracker tracker = deltaTracker;
+        if (tracker == null || broadcast.getRobotName() == null || messageEncoder.isBinary()) {
+            this.transport.send(messageEncoder.encode(broadcast), broadcast.getLane(), broadcast.getCoalesceKey());
+            return;
+        }
+        // the tracker and the queue must see updates in the same order, so both happen under the tracker's lock.
+        synchronized (tracker) {
+            if (broadcast.isPresenceChange()) {
+                // a robot that enters the world starts again from a keyframe.
+                tracker.forget(broadcast.getRobotName());
+            }
+            if (broadcast.getState() == null) {
+                this.transport.send(messageEncoder.encode(broadcast), broadcast.getLane(), broadcast.getCoalesceKey());
+                return;
+            }
+            HashMap<String, Object> changes = tracker.update(broadcast.getRobotName(), broadcast.getState());
+            if (changes == null) {
+                // a keyframe replaces everything queued about the robot, so it may coalesce like a full update.
+                this.transport.send(messageEncoder.encode(broadcast), broadcast.getLane(), broadcast.getCoalesceKey());
+            }
+            else if (!changes.isEmpty()) {
+                // a delta builds on the updates before it, so neither it nor a later keyframe may overtake them in the queue.
+                Response delta = new StandardResponse(new HashMap<>(){{
+                    put("message", "enemy state changed");
+                    put("robotName", broadcast.getRobotName());
+                    put("robotState", changes);
+                    put("delta", true);
+                }}, null);
+                delta.setSequence(broadcast.getResponse().getSequence());
+                this.transport.sendDelta(messageEncoder.encode(delta), Lane.STATE, broadcast.getRobotName());
+            }
+        }
+    }
+
+    /**
+     * Makes the client receive the state changes of other robots as deltas that carry only the changed fields,
+     * with a full keyframe every given number of updates. Has no effect on the binary protocol,
+     * whose full states are already smaller than a JSON delta. Called while handling the connect request.
+     *
+     * @param keyframeInterval the number of updates about a robot from one keyframe to the next
+     */
+    public void useDeltaUpdates(int keyframeInterval) {
+        deltaTracker = new DeltaTracker(keyframeInterval);
+    }
+
+    /**
+     * Switches the connection to the binary protocol.
+     * Called while handling the connect request; the connect response and everything after it use length-prefixed frames.
+     */
+    public void useBinaryProtocol() {
+        messageEncoder.useBinary();
+        frameDecoder.setFraming("length");
+    }
+
+    /**
+     * Switches the connection to compressed responses.
+     * Called while handling the connect request; the connect response and everything after it use length-prefixed
+     * frames, and payloads of at least the configured threshold are deflated. Requests are not affected.
+     */
+    public void useCompression() {
+        messageEncoder.useDeflate(ConfigurationManager.getCompressionThreshold());
+    }
+
+    /**
+     * Returns the encoder that turns responses into frames in the format the client negotiated.
+     *
+     * @return the message encoder
+     */
+    public MessageEncoder getMessageEncoder() {
+        return messageEncoder;
+    }
+
+    /**
+     * Returns the connection the client handler talks through.
+     *
+     * @return the transport
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the id that identifies this connection for as long as the server runs.
+     *
+     * @return the connection id
+     */
+    public long getConnectionId() {
+        return connectionId;
+    }
+
+    /**
+     * Removes the client handler from the registry of clients connected to its world.
      */
     public void removeClientHandler() {
-        clientHanders.remove(this);
+        world.getClientRegistry().unregister(this);
     }
 
     /**
@@ -257,6 +779,11 @@ public class ClientHandler implements Runnable {
      */
     public void closeEverything(Socket socket, InputStream inputStream, OutputStream outputStream) {
         removeClientHandler();
+        if (transport != null) {
+            // the transport closes the socket once the queued responses have been written.
+            transport.close();
+            return;
+        }
         try {
             if (inputStream != null) {
                 inputStream.close();
@@ -281,13 +808,4 @@ public class ClientHandler implements Runnable {
     public String toString() {
         return this.robotName;
     }
-
-    /**
-     * Returns a list of all active client handlers.
-     *
-     * @return a list of all active client handlers
-     */
-    public static List<ClientHandler> getClientHandlers() {
-        return clientHanders;
-    }
 }
@@ -0,0 +1,90 @@
+package domain;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The clients connected to one world, indexed by connection id and by the name of their robot.
+ *
+ * Clients register and unregister from their own threads while other threads broadcast to them, so the
+ * indexes are concurrent maps: registering and unregistering take constant time, and broadcasts iterate
+ * the live set of clients without copying it and without ever failing because a client came or went.
+ */
+public class ClientRegistry {
+    private final ConcurrentHashMap<Long, ClientHandler> clientsById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ClientHandler> clientsByRobotName = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a newly connected client.
+     *
+     * @param clientHandler the client handler of the client
+     */
+    public void register(ClientHandler clientHandler) {
+        clientsById.put(clientHandler.getConnectionId(), clientHandler);
+    }
+
+    /**
+     * Indexes a client by the name of the robot it launched.
+     *
+     * @param clientHandler the client handler of the client, which must have a robot
+     */
+    public void robotLaunched(ClientHandler clientHandler) {
+        clientsByRobotName.put(key(clientHandler.getRobot().getName()), clientHandler);
+    }
+
+    /**
+     * Removes a client. Calling this more than once has no effect.
+     *
+     * @param clientHandler the client handler of the client
+     */
+    public void unregister(ClientHandler clientHandler) {
+        clientsById.remove(clientHandler.getConnectionId(), clientHandler);
+        if (clientHandler.getRobot() != null) {
+            clientsByRobotName.remove(key(clientHandler.getRobot().getName()), clientHandler);
+        }
+    }
+
+    /**
+     * Finds a client by its connection id.
+     *
+     * @param connectionId the connection id
+     * @return the client handler, or null if no client with this id is connected
+     */
+    public ClientHandler getByConnectionId(long connectionId) {
+        return clientsById.get(connectionId);
+    }
+
+    /**
+     * Finds a client by the name of its robot. Robot names are compared ignoring case, as in the world.
+     *
+     * @param robotName the name of the robot
+     * @return the client handler, or null if no connected client has a robot with this name
+     */
+    public ClientHandler getByRobotName(String robotName) {
+        return clientsByRobotName.get(key(robotName));
+    }
+
+    /**
+     * Returns a live view of the connected clients.
+     * Iterating it never throws ConcurrentModificationException; clients that come or go meanwhile may or may not be seen.
+     *
+     * @return the connected clients
+     */
+    public Collection<ClientHandler> getClientHandlers() {
+        return clientsById.values();
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return the number of clients
+     */
+    public int size() {
+        return clientsById.size();
+    }
+
+    private static String key(String robotName) {
+        return robotName.toLowerCase(Locale.ROOT);
+    }
+}
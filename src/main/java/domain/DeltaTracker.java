@@ -0,0 +1,71 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Remembers the last state of every robot that was sent to one client,
+ * so later updates about that robot only need to carry the fields that changed.
+ *
+ * Every keyframeInterval-th update about a robot is a keyframe that carries the full state again,
+ * so a client that missed an update, e.g. because its outbound queue overflowed, gets back in sync.
+ */
+public class DeltaTracker {
+    private final int keyframeInterval;
+    private final HashMap<String, HashMap<String, Object>> lastSent = new HashMap<>();
+    private final HashMap<String, Integer> updatesSinceKeyframe = new HashMap<>();
+
+    /**
+     * Constructs a new DeltaTracker.
+     *
+     * @param keyframeInterval the number of updates about a robot from one keyframe to the next
+     */
+    public DeltaTracker(int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Records that a state of a robot is about to be sent and works out what changed since the last one.
+     *
+     * @param robotName the name of the robot
+     * @param state     the new state of the robot, which must not change afterwards
+     * @return the fields that changed, which may be none, or null if the full state must be sent as a keyframe
+     */
+    public HashMap<String, Object> update(String robotName, HashMap<String, Object> state) {
+        HashMap<String, Object> previous = lastSent.put(robotName, state);
+        int updates = updatesSinceKeyframe.getOrDefault(robotName, 0) + 1;
+        if (previous == null || updates >= keyframeInterval) {
+            updatesSinceKeyframe.put(robotName, 0);
+            return null;
+        }
+        updatesSinceKeyframe.put(robotName, updates);
+
+        HashMap<String, Object> changes = new HashMap<>();
+        for (Map.Entry<String, Object> field : state.entrySet()) {
+            if (!sameValue(previous.get(field.getKey()), field.getValue())) {
+                changes.put(field.getKey(), field.getValue());
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Forgets what was sent about a robot, e.g. because it left the world or the client was sent its full state
+     * some other way. The next update about it is a keyframe.
+     *
+     * @param robotName the name of the robot
+     */
+    public void forget(String robotName) {
+        lastSent.remove(robotName);
+        updatesSinceKeyframe.remove(robotName);
+    }
+
+    private static boolean sameValue(Object previous, Object current) {
+        if (previous instanceof int[] && current instanceof int[]) {
+            return Arrays.equals((int[]) previous, (int[]) current);
+        }
+        return Objects.equals(previous, current);
+    }
+}
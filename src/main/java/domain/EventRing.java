@@ -0,0 +1,184 @@
+package domain;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import server.ServerMetrics;
+
+/**
+ * A ring of pre-allocated event slots between the threads that execute commands and the thread that broadcasts
+ * the events of one world.
+ *
+ * A command thread claims the next sequence number, fills in the slot for it and publishes it; none of this takes
+ * a lock or allocates. A single consumer thread handles the events in sequence order: it turns them into messages,
+ * picks the recipients and queues the messages for them. Command threads therefore never wait for a broadcast to
+ * reach other clients, and every client receives the events of the world in one order.
+ *
+ * When the consumer falls a whole ring behind, publishers wait for it to free a slot rather than overwrite events
+ * it has not handled.
+ */
+public class EventRing {
+    private final WorldEvent[] slots;
+    private final int mask;
+    private final Consumer<WorldEvent> handler;
+    private final String name;
+    // the last sequence number handed to a publisher.
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // the last sequence number the consumer has finished with.
+    private volatile long consumed = -1;
+    private volatile Thread consumer;
+    private volatile boolean consumerParked = false;
+    private volatile boolean stopped = false;
+
+    // how long the consumer spins for the next event before it parks.
+    private static final int SPINS = 100;
+
+    /**
+     * Constructs a new EventRing. The consumer thread is started when the first event is claimed.
+     *
+     * @param size    the number of slots, rounded up to a power of two
+     * @param name    the name of the consumer thread
+     * @param handler handles every event, on the consumer thread
+     */
+    public EventRing(int size, String name, Consumer<WorldEvent> handler) {
+        int capacity = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        this.slots = new WorldEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new WorldEvent();
+        }
+        this.mask = capacity - 1;
+        this.name = name;
+        this.handler = handler;
+    }
+
+    /**
+     * Claims the sequence number of the next event, waiting while the ring is full.
+     * The caller must fill in the slot returned by get and then call publish, or the consumer stops at this event.
+     *
+     * @return the sequence number
+     */
+    long next() {
+        if (consumer == null) {
+            startConsumer();
+        }
+        long sequence = claimed.incrementAndGet();
+        if (sequence - slots.length > consumed) {
+            ServerMetrics.EVENT_RING_FULL_WAITS.increment();
+            // once the ring is stopped nothing frees a slot, and nothing reads the event either.
+            while (sequence - slots.length > consumed && !stopped) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns the slot for a claimed sequence number.
+     *
+     * @param sequence the sequence number
+     * @return the slot
+     */
+    WorldEvent get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Hands a filled in slot to the consumer.
+     *
+     * @param sequence the sequence number the slot was claimed for
+     */
+    void publish(long sequence) {
+        WorldEvent event = get(sequence);
+        event.publishedAt = System.nanoTime();
+        event.sequence = sequence;
+        ServerMetrics.EVENTS_PUBLISHED.increment();
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Returns the number of events published or being published that the consumer has not finished with.
+     *
+     * @return the lag of the consumer in events
+     */
+    public long getLag() {
+        return claimed.get() - consumed;
+    }
+
+    /**
+     * Stops the consumer thread once it has finished with the event it is handling, e.g. because the world is no longer hosted.
+     * Events published after that are never handled.
+     */
+    public void stop() {
+        stopped = true;
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private synchronized void startConsumer() {
+        if (consumer != null) {
+            return;
+        }
+        Thread thread = new Thread(this::consume, name);
+        thread.setDaemon(true);
+        consumer = thread;
+        thread.start();
+    }
+
+    /**
+     * Handles events in sequence order, until the ring is stopped.
+     */
+    private void consume() {
+        long next = consumed + 1;
+        while (!stopped) {
+            WorldEvent event = get(next);
+            if (!awaitPublished(event, next)) {
+                return;
+            }
+            ServerMetrics.EVENT_LAG_NANOS.add(System.nanoTime() - event.publishedAt);
+            try {
+                handler.accept(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                event.clear();
+            }
+            consumed = next;
+            ServerMetrics.EVENTS_CONSUMED.increment();
+            next++;
+        }
+    }
+
+    /**
+     * Waits until the event with the given sequence number has been published to its slot.
+     *
+     * @param event    the slot
+     * @param sequence the sequence number
+     * @return true once the event has been published, or false if the ring was stopped first
+     */
+    private boolean awaitPublished(WorldEvent event, long sequence) {
+        int spins = 0;
+        while (event.sequence != sequence) {
+            if (stopped) {
+                return false;
+            }
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+                continue;
+            }
+            // a publisher checks consumerParked after publishing, so the check below and its check cannot both miss.
+            consumerParked = true;
+            if (event.sequence != sequence) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            consumerParked = false;
+        }
+        return true;
+    }
+}
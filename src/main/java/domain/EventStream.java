@@ -0,0 +1,103 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import domain.response.Response;
+import domain.response.StandardResponse;
+import server.Broadcast;
+
+/**
+ * The ordered stream of events broadcast in one world.
+ *
+ * Every event is numbered as it is appended, and the stream keeps the robots in the world as the events so far
+ * describe them. A client joining the world is sent that view as a snapshot numbered with the last event it
+ * includes, and then every later event, so it neither misses nor repeats an event however busy the world is.
+ *
+ * Only the consumer of the world's EventRing appends events and takes snapshots, and it queues each event or
+ * snapshot for its recipients before it moves on, so every client is sent the stream in order without a lock.
+ */
+public class EventStream {
+
+    /**
+     * A robot as the events so far describe it.
+     */
+    private static class RobotView {
+        private final String kind;
+        private HashMap<String, Object> state;
+
+        private RobotView(String kind, HashMap<String, Object> state) {
+            this.kind = kind;
+            this.state = state;
+        }
+    }
+
+    private volatile long sequence = 0;
+    private final LinkedHashMap<String, RobotView> robots = new LinkedHashMap<>();
+
+    /**
+     * Numbers an event, tags its response with the number and applies it to the view of the robots.
+     * Called by the consumer of the world's event ring only.
+     *
+     * @param broadcast the event
+     * @return the sequence number of the event
+     */
+    long append(Broadcast broadcast) {
+        String robotName = broadcast.getRobotName();
+        if (broadcast.isPresenceChange()) {
+            if (broadcast.getState() != null) {
+                robots.put(robotName, new RobotView(broadcast.getRobotKind(), broadcast.getState()));
+            }
+            else {
+                robots.remove(robotName);
+            }
+        }
+        else if (broadcast.getState() != null) {
+            RobotView robot = robots.get(robotName);
+            if (robot != null) {
+                robot.state = broadcast.getState();
+            }
+        }
+        sequence++;
+        broadcast.getResponse().setSequence(sequence);
+        return sequence;
+    }
+
+    /**
+     * Describes every robot in the world as of the last event appended.
+     * Called by the consumer of the world's event ring only.
+     *
+     * @param excludedRobotName the name of a robot to leave out, e.g. the joining client's own, or null
+     * @return the snapshot, tagged with the sequence number of the last event it includes
+     */
+    Response snapshot(String excludedRobotName) {
+        List<HashMap<String, Object>> robotsList = new ArrayList<>(robots.size());
+        for (var entry : robots.entrySet()) {
+            if (entry.getKey().equals(excludedRobotName)) {
+                continue;
+            }
+            HashMap<String, Object> robotInfo = new HashMap<>();
+            robotInfo.put("robotName", entry.getKey());
+            robotInfo.put("robotKind", entry.getValue().kind);
+            robotInfo.put("robotState", entry.getValue().state);
+            robotsList.add(robotInfo);
+        }
+        Response snapshot = new StandardResponse(new HashMap<>(){{
+            put("message", "robots currently in world");
+            put("robots", robotsList);
+        }}, null, "gui");
+        snapshot.setSequence(sequence);
+        return snapshot;
+    }
+
+    /**
+     * Returns the sequence number of the last event appended.
+     *
+     * @return the sequence number, or 0 if no event has been appended
+     */
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,166 @@
+package domain;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import domain.world.Robot;
+import domain.world.util.Position;
+
+/**
+ * The state changes of the robots of one world that are being held back for the coalescing window,
+ * the latest change of each robot replacing the ones before it.
+ *
+ * Every world has its own, so flushing the changes of one world never waits for, or sends, those of another.
+ *
+ * Each robot has a slot its changes are copied into, like the slots of the EventRing, so holding back a change
+ * allocates nothing. A slot is kept while the robot keeps changing, and dropped by a flush that finds it has held
+ * nothing since the flush before, so robots that stopped moving or left the world are not kept.
+ */
+public class PendingStateChanges {
+
+    /**
+     * The slot holding the latest state change of a robot.
+     */
+    static class StateChange {
+        // guarded by the slot's monitor.
+        private boolean pending = false;
+        private boolean idle = false;
+        // set once the slot is dropped; a robot whose slot was dropped takes a new one.
+        private boolean dropped = false;
+
+        ClientHandler sender;
+        String robotName;
+        Position origin;
+        // a robot's position array is replaced, never changed, when the robot moves, so the slot may hold on to it.
+        int[] position;
+        String direction;
+        Object shields;
+        Object shots;
+        String status;
+
+        /**
+         * Copies the current state of a robot into the slot.
+         *
+         * @param sender the client of the robot
+         * @param robot  the robot
+         */
+        private void copyState(ClientHandler sender, Robot robot) {
+            HashMap<String, Object> state = robot.getState();
+            this.sender = sender;
+            robotName = robot.getName();
+            origin = robot.getPosition();
+            position = (int[]) state.get("position");
+            direction = (String) state.get("direction");
+            shields = state.get("shields");
+            shots = state.get("shots");
+            status = (String) state.get("status");
+        }
+    }
+
+    // keyed by the robot itself rather than its name, so a robot that quits and one launched with its name never mix.
+    private final Map<Robot, StateChange> changes = new ConcurrentHashMap<>();
+    // set by hold, and cleared by flush before it looks at the slots, so a flush with nothing to send is cheap.
+    private volatile boolean anyPending = false;
+    // held back state changes are sent by one thread at a time, and other events wait for them,
+    // so no update about a robot can overtake an older one.
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * Holds back the current state of a robot, replacing any state of the robot held back before.
+     *
+     * @param sender the client of the robot
+     * @param robot  the robot whose state changed
+     * @return true if the change replaced one held back before, false otherwise
+     */
+    boolean hold(ClientHandler sender, Robot robot) {
+        while (true) {
+            StateChange stateChange = changes.get(robot);
+            if (stateChange == null) {
+                stateChange = new StateChange();
+                StateChange existing = changes.putIfAbsent(robot, stateChange);
+                if (existing != null) {
+                    stateChange = existing;
+                }
+            }
+            synchronized (stateChange) {
+                if (stateChange.dropped) {
+                    continue;
+                }
+                boolean replaced = stateChange.pending;
+                // the robot changes its state map in place, so the slot keeps a copy taken now.
+                stateChange.copyState(sender, robot);
+                stateChange.pending = true;
+                stateChange.idle = false;
+                anyPending = true;
+                return replaced;
+            }
+        }
+    }
+
+    /**
+     * Forgets the state change held back for a robot, e.g. because a newer one is sent straight away.
+     *
+     * @param robot the robot
+     */
+    void discard(Robot robot) {
+        StateChange stateChange = changes.get(robot);
+        if (stateChange != null) {
+            synchronized (stateChange) {
+                stateChange.pending = false;
+            }
+        }
+    }
+
+    /**
+     * Hands every state change that is being held back to the sender, one at a time.
+     * The sender must copy what it needs out of the slot before it returns.
+     *
+     * @param sender sends a state change
+     */
+    void flush(Consumer<StateChange> sender) {
+        // checking for changes without the lock would let an event overtake a change another thread is still sending.
+        flushLock.lock();
+        try {
+            if (!anyPending) {
+                return;
+            }
+            anyPending = false;
+            for (Map.Entry<Robot, StateChange> entry : changes.entrySet()) {
+                StateChange stateChange = entry.getValue();
+                synchronized (stateChange) {
+                    if (stateChange.pending) {
+                        stateChange.pending = false;
+                        sender.accept(stateChange);
+                    }
+                    else if (stateChange.idle) {
+                        stateChange.dropped = true;
+                        changes.remove(entry.getKey(), stateChange);
+                    }
+                    else {
+                        stateChange.idle = true;
+                    }
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the flush lock, waiting for a thread that is sending held back changes, so an event published
+     * before unlock is called reaches the clients after those changes. The lock may be taken again by the same thread.
+     */
+    void lock() {
+        flushLock.lock();
+    }
+
+    /**
+     * Releases the flush lock taken by lock.
+     */
+    void unlock() {
+        flushLock.unlock();
+    }
+}
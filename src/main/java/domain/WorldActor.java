@@ -0,0 +1,150 @@
+package domain;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import server.ServerMetrics;
+
+/**
+ * The single thread that owns a world when the server runs in the "actor" execution mode.
+ *
+ * Connection threads do not execute commands themselves; they submit them to the mailbox of the world's actor and get
+ * a future for the response. The mailbox is a lock-free queue that any number of threads may add to, and the actor
+ * takes tasks from it one at a time, in the order they were submitted. Every change to the world, its robots and its
+ * obstacles therefore happens on one thread, without a lock per command, and the commands of one client are executed
+ * in the order it sent them.
+ *
+ * When the mailbox is empty the actor spins briefly and then parks until a task is submitted.
+ */
+public class WorldActor {
+    private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final String name;
+    private volatile Thread owner;
+    private volatile boolean ownerParked = false;
+    private volatile boolean stopped = false;
+
+    // how long the actor spins for the next task before it parks.
+    private static final int SPINS = 100;
+
+    /**
+     * Constructs a new WorldActor. Its thread is started when the first task is submitted.
+     *
+     * @param name the name of the actor's thread
+     */
+    public WorldActor(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs a task on the actor's thread and completes the returned future with its result.
+     * If the task throws, the future is completed with the exception instead.
+     * Actions attached to the future while it is incomplete also run on the actor's thread.
+     *
+     * @param task the task, e.g. executing a command
+     * @param <T>  the type of the result
+     * @return the future result of the task
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(task.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs a task on the actor's thread, after every task submitted before it.
+     *
+     * @param task the task
+     */
+    public void execute(Runnable task) {
+        if (owner == null) {
+            startOwner();
+        }
+        mailbox.offer(task);
+        ServerMetrics.WORLD_TASKS_SUBMITTED.increment();
+        if (ownerParked) {
+            LockSupport.unpark(owner);
+        }
+    }
+
+    /**
+     * Checks if the calling thread is the actor's thread.
+     *
+     * @return true if called from a task the actor is running
+     */
+    public boolean isOwner() {
+        return Thread.currentThread() == owner;
+    }
+
+    /**
+     * Stops the actor's thread once it has run every task submitted so far, e.g. because the world is no longer hosted.
+     * Tasks submitted after that are never run.
+     */
+    public void stop() {
+        stopped = true;
+        Thread thread = owner;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private synchronized void startOwner() {
+        if (owner != null) {
+            return;
+        }
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        owner = thread;
+        thread.start();
+    }
+
+    /**
+     * Runs submitted tasks in order, until the actor is stopped and its mailbox is empty.
+     */
+    private void run() {
+        while (true) {
+            Runnable task = mailbox.poll();
+            if (task == null) {
+                if (stopped) {
+                    return;
+                }
+                awaitTask();
+                continue;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            ServerMetrics.WORLD_TASKS_EXECUTED.increment();
+        }
+    }
+
+    /**
+     * Waits until a task has been submitted or the actor is stopped.
+     */
+    private void awaitTask() {
+        int spins = 0;
+        while (mailbox.isEmpty() && !stopped) {
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+                continue;
+            }
+            // a submitter checks ownerParked after adding its task, so the check below and its check cannot both miss.
+            ownerParked = true;
+            if (mailbox.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            ownerParked = false;
+        }
+    }
+}
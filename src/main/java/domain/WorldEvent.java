@@ -0,0 +1,106 @@
+package domain;
+
+import java.util.HashMap;
+
+import domain.response.Response;
+import domain.world.Robot;
+import domain.world.util.Position;
+
+/**
+ * A slot of the EventRing of a world, holding one event between the thread that publishes it and the consumer.
+ * Slots are allocated with the ring and reused for every event, so publishing an event allocates nothing:
+ * the state of a robot is copied into the slot's fields, and turned into a message by the consumer.
+ */
+class WorldEvent {
+    static final int COMBAT = 0;
+    static final int STATE = 1;
+    static final int ARRIVAL = 2;
+    static final int DEPARTURE = 3;
+    static final int JOIN = 4;
+
+    // the sequence number of the event in the slot, written last by the publisher; -1 until the first event.
+    volatile long sequence = -1;
+    long publishedAt;
+
+    int type;
+    ClientHandler sender;
+    Response response;
+    String coalesceKey;
+    Position origin;
+
+    String robotName;
+    String robotKind;
+    // a robot's position array is replaced, never changed, when the robot moves, so the slot may hold on to it.
+    int[] position;
+    String direction;
+    Object shields;
+    Object shots;
+    String status;
+
+    /**
+     * Copies the state of a robot, as its clients see it, into the slot.
+     *
+     * @param robot the robot
+     */
+    void copyState(Robot robot) {
+        copyState(robot.getState());
+    }
+
+    /**
+     * Copies a robot state map into the slot.
+     *
+     * @param state the state of a robot
+     */
+    void copyState(HashMap<String, Object> state) {
+        position = (int[]) state.get("position");
+        direction = (String) state.get("direction");
+        shields = state.get("shields");
+        shots = state.get("shots");
+        status = (String) state.get("status");
+    }
+
+    /**
+     * Copies a held back state change into the slot.
+     *
+     * @param stateChange the state change
+     */
+    void copyState(PendingStateChanges.StateChange stateChange) {
+        position = stateChange.position;
+        direction = stateChange.direction;
+        shields = stateChange.shields;
+        shots = stateChange.shots;
+        status = stateChange.status;
+    }
+
+    /**
+     * Builds the state map copied into the slot. Called by the consumer.
+     *
+     * @return a new state map
+     */
+    HashMap<String, Object> stateAsHashMap() {
+        HashMap<String, Object> state = new HashMap<>();
+        state.put("position", position);
+        state.put("direction", direction);
+        state.put("shields", shields);
+        state.put("shots", shots);
+        state.put("status", status);
+        return state;
+    }
+
+    /**
+     * Drops the references held by the slot once its event has been handled.
+     */
+    void clear() {
+        sender = null;
+        response = null;
+        coalesceKey = null;
+        origin = null;
+        robotName = null;
+        robotKind = null;
+        position = null;
+        direction = null;
+        shields = null;
+        shots = null;
+        status = null;
+    }
+}
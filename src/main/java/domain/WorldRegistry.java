@@ -0,0 +1,135 @@
+package domain;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import domain.world.World;
+
+/**
+ * Keeps track of the worlds hosted by the server, by name.
+ *
+ * Each world has its own robots, obstacles, clients, event ring and, in the "actor" execution mode, its own thread,
+ * so the matches played in different worlds do not affect each other. Clients start in the default world and may
+ * name another one when they connect; a world is created the first time a client names it, and is reclaimed,
+ * stopping its threads, once the last client in it leaves. The default world is never reclaimed.
+ */
+public class WorldRegistry {
+
+    /**
+     * The name of the world clients play in unless they name another one.
+     */
+    public static final String DEFAULT_WORLD = "default";
+
+    private static final Pattern WORLD_NAME = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+    private final Map<String, World> worlds = new ConcurrentHashMap<>();
+    // the number of clients in each world other than the default one, changed only while holding the registry's lock.
+    private final Map<World, Integer> clientCounts = new HashMap<>();
+    private final int maxWorlds;
+
+    /**
+     * Constructs a new WorldRegistry that hosts the default world.
+     *
+     * @param maxWorlds the maximum number of worlds, including the default one, or 0 for no limit
+     */
+    public WorldRegistry(int maxWorlds) {
+        this.maxWorlds = maxWorlds;
+        World world = new World();
+        world.setWorldName(DEFAULT_WORLD);
+        worlds.put(DEFAULT_WORLD, world);
+    }
+
+    /**
+     * Checks if a world may have the given name: 1 to 32 letters, digits, underscores or hyphens.
+     *
+     * @param name the name of the world
+     * @return true if the name is valid, false otherwise
+     */
+    public static boolean isValidName(String name) {
+        return name != null && WORLD_NAME.matcher(name).matches();
+    }
+
+    /**
+     * Returns the world clients play in unless they name another one.
+     *
+     * @return the default world
+     */
+    public World getDefaultWorld() {
+        return worlds.get(DEFAULT_WORLD);
+    }
+
+    /**
+     * Adds a client to the world with the given name, creating the world if the server does not host it yet.
+     * Names are case insensitive. The client must call leave when it leaves the world.
+     *
+     * @param name the name of the world, which must be valid
+     * @return the world, or null if it does not exist and the server already hosts the maximum number of worlds
+     */
+    public synchronized World enter(String name) {
+        String key = name.toLowerCase();
+        World world = worlds.get(key);
+        if (world == null) {
+            if (maxWorlds > 0 && worlds.size() >= maxWorlds) {
+                return null;
+            }
+            world = new World();
+            world.setWorldName(key);
+            worlds.put(key, world);
+        }
+        if (world != getDefaultWorld()) {
+            clientCounts.merge(world, 1, Integer::sum);
+        }
+        return world;
+    }
+
+    /**
+     * Removes a client from a world it entered. When the last client leaves a world other than the default one,
+     * the server stops hosting it and its threads are stopped; a client that names it later gets a new world.
+     *
+     * @param world the world the client leaves
+     */
+    public synchronized void leave(World world) {
+        Integer count = clientCounts.get(world);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            clientCounts.put(world, count - 1);
+            return;
+        }
+        clientCounts.remove(world);
+        worlds.remove(world.getWorldName(), world);
+        world.shutdown();
+    }
+
+    /**
+     * Returns the world with the given name.
+     *
+     * @param name the name of the world
+     * @return the world, or null if the server does not host it
+     */
+    public World get(String name) {
+        return worlds.get(name.toLowerCase());
+    }
+
+    /**
+     * Returns every world the server hosts.
+     *
+     * @return a live view of the worlds
+     */
+    public Collection<World> getWorlds() {
+        return worlds.values();
+    }
+
+    /**
+     * Returns the number of worlds the server hosts.
+     *
+     * @return the number of worlds
+     */
+    public int size() {
+        return worlds.size();
+    }
+}
@@ -2,13 +2,13 @@ package domain.commands;
 
 import java.util.HashMap;
 
+import domain.BroadcastBus;
 import domain.ClientHandler;
 import domain.response.*;
 import domain.response.ApiResponse;
 import domain.world.Robot;
 import domain.world.World;
 import domain.world.util.UpdateResponse;
-import json.JsonHandler;
 import domain.ClientController;
 
 
@@ -33,10 +33,10 @@ public class BackCommand extends Command {
         
         robot.setStatus("NORMAL");
 
-        if (world.updatePosition(robot, -nrSteps)[0] == UpdateResponse.SUCCESS) {
+        if (world.updatePosition(robot, -nrSteps).getResponse() == UpdateResponse.SUCCESS) {
             message = "Done";
         }
-        else if (world.updatePosition(robot, -nrSteps)[0] == UpdateResponse.FAILED_OBSTRUCTED) {
+        else if (world.updatePosition(robot, -nrSteps).getResponse() == UpdateResponse.FAILED_OBSTRUCTED) {
             message = "Obstructed";
         }
         else {
@@ -44,16 +44,7 @@ public class BackCommand extends Command {
         }
 
         // broadcast to other clients
-        for (ClientHandler cH : ClientHandler.clientHanders) {
-            if (cH.getRobot() != null && cH != clientHandler) {
-                Response res = new StandardResponse(new HashMap<>(){{
-                    put("message", "enemy state changed");
-                    put("robotName", robot.getName());
-                    put("robotState", robot.getState());
-                }}, null);
-                cH.sendToClient(JsonHandler.serializeResponse(res));
-            }
-        }
+        BroadcastBus.publishStateChange(clientHandler, robot);
         return new StandardResponse(new HashMap<>() {{ put("message", message); }}, robot.getState(), "robot");
     }
 
@@ -19,6 +19,7 @@ import domain.ClientController;
 public abstract class Command {
     private final String name;
     private String argument;
+    private Object id;
 
     /**
      * Constructs a Command object with the specified name.
@@ -62,9 +63,52 @@ public abstract class Command {
         return argument;
     }
 
+    /**
+     * Returns the id the client gave the request, which is echoed in the response.
+     *
+     * @return the id of the request, or null if the request had none
+     */
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id the client gave the request.
+     *
+     * @param id the id of the request, a number or a string
+     */
+    public void setId(Object id) {
+        this.id = id;
+    }
+
+    /**
+     * Extracts the optional "id" field of a request.
+     *
+     * @param request the request string
+     * @return the id as a Long if it is a whole number, as a String otherwise, or null if the request has no id
+     */
+    public static Object getRequestId(String request) {
+        JsonNode requestJson = JsonHandler.deserializeJsonTString(request);
+        return requestJson == null ? null : getRequestId(requestJson);
+    }
+
+    /**
+     * Extracts the optional "id" field of a parsed request.
+     *
+     * @param requestJson the parsed request
+     * @return the id as a Long if it is a whole number, as a String otherwise, or null if the request has no id
+     */
+    public static Object getRequestId(JsonNode requestJson) {
+        JsonNode id = requestJson.get("id");
+        if (id == null || id.isNull()) {
+            return null;
+        }
+        return id.canConvertToLong() && id.isIntegralNumber() ? (Object) id.longValue() : id.asText();
+    }
+
     /**
      * Creates a Command object based on the provided request string.
-     * Parses the request string into a JSON node and extracts the command, robot name, and arguments.
+     * Parses the request string into a JSON node and extracts the command, robot name, arguments and optional id.
      * Returns a Command object corresponding to the command type.
      * @param request the request string containing the command information
      * @return a Command object based on the command type in the request string
@@ -79,7 +123,17 @@ public abstract class Command {
         } catch (Exception e) {
             throw new IllegalArgumentException("Unsupported command: " + request);
         }
-        
+        return create(requestJson);
+    }
+
+    /**
+     * Creates a Command object based on a request that has already been parsed,
+     * either from a JSON request string or from a binary request.
+     * @param requestJson the parsed request
+     * @return a Command object based on the command type in the request
+     * @throws IllegalArgumentException if the command in the request is not supported
+     */
+    public static Command create(JsonNode requestJson) {
         String command;
         String robotName;
         JsonNode args;
@@ -91,9 +145,24 @@ public abstract class Command {
             throw new IllegalArgumentException("Missing commands in request");
         }
 
+        Command newCommand = create(command, robotName, args);
+        newCommand.setId(getRequestId(requestJson));
+        return newCommand;
+    }
+
+    /**
+     * Creates a Command object for the given command name, robot name and arguments.
+     *
+     * @param command the name of the command
+     * @param robotName the name of the robot the command is for
+     * @param args the arguments of the command
+     * @return a Command object based on the command type
+     * @throws IllegalArgumentException if the command is not supported
+     */
+    private static Command create(String command, String robotName, JsonNode args) {
         switch (command){
             case "connect":
-                return new ConnectCommand();
+                return new ConnectCommand(args);
             case "launch":
                 return new LaunchCommand(robotName, args);
             case "quit":
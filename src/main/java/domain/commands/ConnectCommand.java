@@ -2,7 +2,10 @@ package domain.commands;
 
 import java.util.HashMap;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import domain.ClientHandler;
+import domain.configuration.ConfigurationManager;
 import domain.response.ApiResponse;
 import domain.response.Response;
 import domain.response.StandardResponse;
@@ -13,21 +16,94 @@ import domain.ClientController;
  * Represents a "connect" command in the game.
  * Inherits from the Command class and provides the implementation for the connect command.
  * When executed, sets the current command in the client handler and returns a response indicating successful connection.
+ * The arguments may name options for the connection; "binary" switches the connection to the binary protocol
+ * and "deflate" compresses large responses, such as the obstacle list in the connect response itself.
+ * "heartbeat" asks the server to ping the client when it goes silent; the response says after how many seconds.
+ * "spectator" makes the client receive every event in the world instead of only those near its robot.
+ * "delta" makes the client receive the state changes of other robots as deltas that only carry changed fields.
+ * "world=NAME" plays in the named world instead of the default one; the world is created if the server does not host it yet,
+ * and reclaimed once its last client leaves. NAME is 1 to 32 letters, digits, underscores or hyphens.
+ * Unknown options are ignored so that older servers and newer clients can talk to each other.
  */
 public class ConnectCommand extends Command {
+    private final JsonNode args;
+
     public ConnectCommand() {
+        this(null);
+    }
+
+    public ConnectCommand(JsonNode args) {
         super("connect");
+        this.args = args;
+    }
+
+    /**
+     * Checks if the client asked for an option when connecting.
+     *
+     * @param option the name of the option
+     * @return true if the option is one of the arguments, false otherwise
+     */
+    private boolean hasOption(String option) {
+        if (args == null || !args.isArray()) {
+            return false;
+        }
+        for (JsonNode arg : args) {
+            if (option.equals(arg.asText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the world the client asked to play in with a "world=NAME" option.
+     *
+     * @return the name of the world, or null if the client did not name one
+     */
+    public String getWorldName() {
+        if (args == null || !args.isArray()) {
+            return null;
+        }
+        for (JsonNode arg : args) {
+            String option = arg.asText();
+            if (option.startsWith("world=") && option.length() > "world=".length()) {
+                return option.substring("world=".length());
+            }
+        }
+        return null;
     }
 
     @Override
     public Response execute(ClientHandler clientHandler, World worldGiven) {
         clientHandler.setCurrentCommand(getName());
         World world = clientHandler.getWorld();
+        boolean binary = hasOption("binary");
+        if (binary) {
+            clientHandler.useBinaryProtocol();
+        }
+        boolean heartbeat = hasOption("heartbeat") && ConfigurationManager.getHeartbeatInterval() > 0;
+        if (heartbeat) {
+            clientHandler.useHeartbeat();
+        }
+        if (hasOption("delta")) {
+            clientHandler.useDeltaUpdates(ConfigurationManager.getDeltaKeyframeInterval());
+        }
+        if (hasOption("spectator")) {
+            clientHandler.useSpectatorMode();
+        }
+        boolean deflate = hasOption("deflate");
+        if (deflate) {
+            clientHandler.useCompression();
+        }
         return new StandardResponse(new HashMap<>(){{
             put("message", "connected"); 
+            put("world", world.getWorldName());
             put("obstacles", world.getObstaclesAsPositions());
             put("size", world.getSizeForGUI());
             put("obstacleSize", world.getObstacleSize());
+            put("protocol", binary ? "binary" : "json");
+            put("compression", deflate ? "deflate" : "none");
+            put("heartbeat", heartbeat ? ConfigurationManager.getHeartbeatInterval() : 0);
 
         }}, new HashMap<>(){});
     }
@@ -2,15 +2,17 @@ package domain.commands;
 
 import java.util.HashMap;
 
+import domain.BroadcastBus;
 import domain.ClientHandler;
 import domain.response.ApiResponse;
 import domain.response.ErrorResponse;
 import domain.response.Response;
 import domain.response.StandardResponse;
+import domain.world.Collision;
 import domain.world.Robot;
 import domain.world.World;
-import json.JsonHandler;
 import domain.ClientController;
+import server.Lane;
 
 /**
  * Represents a command to fire a bullet from the robot.
@@ -37,9 +39,9 @@ public class FireCommand extends Command{
     private Response fire(Robot robot, World world) {
         robot.decreaseShots();
     
-        Object[] result = world.fireGun(robot, robot.getBulletDistance());
-        if (result.length == 2) { // blocked by another robot.
-            Robot robotHit = (Robot) result[1]; // get the robot shot
+        Collision result = world.fireGun(robot, robot.getBulletDistance());
+        if (result.getOtherRobot() != null) { // blocked by another robot.
+            Robot robotHit = result.getOtherRobot(); // get the robot shot
             int distance = robot.getDistance(robotHit);
     
             processRobotHit(robot, robotHit, distance);
@@ -82,8 +84,7 @@ public class FireCommand extends Command{
         Response robotHitResponse = new StandardResponse(new HashMap<>() {{
             put("message", "You've been shot.");
         }}, robotHit.getState());
-        String jsonStr = JsonHandler.serializeResponse(robotHitResponse);
-        robotHit.getClientHandler().sendToClient(jsonStr);
+        robotHit.getClientHandler().send(robotHitResponse, Lane.COMBAT);
     }
     
     /**
@@ -92,16 +93,7 @@ public class FireCommand extends Command{
      * @param robotHit The robot that was hit.
      */
     private void notifyClientsOfStateChange(Robot robotHit) {
-        for (ClientHandler cH : ClientHandler.clientHanders) {
-            if (cH.getRobot() != null && cH != robotHit.getClientHandler()) {
-                Response res = new StandardResponse(new HashMap<>() {{
-                    put("message", "enemy state changed");
-                    put("robotName", robotHit.getName());
-                    put("robotState", robotHit.getState());
-                }}, null);
-                cH.sendToClient(JsonHandler.serializeResponse(res));
-            }
-        }
+        BroadcastBus.publishStateChangeNow(robotHit.getClientHandler(), robotHit);
     }
     
     /**
@@ -111,16 +103,12 @@ public class FireCommand extends Command{
      * @param distance The distance to the hit robot.
      */
     private void notifyClientsOfHit(Robot robot, int distance) {
-        for (ClientHandler cH : ClientHandler.clientHanders) {
-            if (cH.getRobot() != null && cH != robot.getClientHandler()) {
-                Response res = new StandardResponse(new HashMap<>() {{
-                    put("message", "an enemy fired gun");
-                    put("robotName", robot.getName());
-                    put("distance", distance);
-                }}, null);
-                cH.sendToClient(JsonHandler.serializeResponse(res));
-            }
-        }
+        Response res = new StandardResponse(new HashMap<>() {{
+            put("message", "an enemy fired gun");
+            put("robotName", robot.getName());
+            put("distance", distance);
+        }}, null);
+        BroadcastBus.publishNear(res, null, robot.getClientHandler(), robot.getPosition());
     }
     
     /**
@@ -129,16 +117,12 @@ public class FireCommand extends Command{
      * @param robot The robot that fired.
      */
     private void notifyClientsOfMiss(Robot robot) {
-        for (ClientHandler cH : ClientHandler.clientHanders) {
-            if (cH.getRobot() != null && cH != robot.getClientHandler()) {
-                Response res = new StandardResponse(new HashMap<>() {{
-                    put("message", "an enemy fired gun");
-                    put("robotName", robot.getName());
-                    put("distance", robot.getBulletDistance());
-                }}, null);
-                cH.sendToClient(JsonHandler.serializeResponse(res));
-            }
-        }
+        Response res = new StandardResponse(new HashMap<>() {{
+            put("message", "an enemy fired gun");
+            put("robotName", robot.getName());
+            put("distance", robot.getBulletDistance());
+        }}, null);
+        BroadcastBus.publishNear(res, null, robot.getClientHandler(), robot.getPosition());
     }
     
     /**
@@ -2,6 +2,7 @@ package domain.commands;
 
 import java.util.HashMap;
 
+import domain.BroadcastBus;
 import domain.ClientHandler;
 import domain.response.ApiResponse;
 import domain.response.Response;
@@ -9,7 +10,6 @@ import domain.response.StandardResponse;
 import domain.world.Robot;
 import domain.world.World;
 import domain.world.util.UpdateResponse;
-import json.JsonHandler;
 import domain.ClientController;
 
 
@@ -35,16 +35,7 @@ public class ForwardCommand extends Command {
      */
     public void broadcastToOtherRobots (ClientHandler clientHandler, Robot robot) {
         // broadcast to other clients
-        for (ClientHandler cH : ClientHandler.clientHanders) {
-            if (cH.getRobot() != null && cH != clientHandler) { // has launched robot into world.
-                Response res = new StandardResponse(new HashMap<>(){{
-                    put("message", "enemy state changed");
-                    put("robotName", robot.getName());
-                    put("robotState", robot.getState());
-                }}, null);
-                cH.sendToClient(JsonHandler.serializeResponse(res));
-            }
-        }
+        BroadcastBus.publishStateChange(clientHandler, robot);
     }
 
     /**
@@ -55,10 +46,10 @@ public class ForwardCommand extends Command {
      * @param world The world in which the robot is being moved.
      */
     public String setMessage (Robot robot, int nrSteps, World world) {
-        if (world.updatePosition(robot ,nrSteps)[0] == UpdateResponse.SUCCESS) {
+        if (world.updatePosition(robot ,nrSteps).getResponse() == UpdateResponse.SUCCESS) {
             return "Done";
         }
-        else if (world.updatePosition(robot ,nrSteps)[0] == UpdateResponse.FAILED_OBSTRUCTED) {
+        else if (world.updatePosition(robot ,nrSteps).getResponse() == UpdateResponse.FAILED_OBSTRUCTED) {
             return "Obstructed";
         }
         else {
@@ -1,18 +1,18 @@
 package domain.commands;
 
-import java.util.HashMap;
 import java.util.Random;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import domain.BroadcastBus;
 import domain.ClientHandler;
 import domain.configuration.ConfigurationManager;
 import domain.response.*;
 import domain.world.Robot;
 import domain.world.SquareObstacle;
 import domain.world.World;
+import domain.world.util.LaunchResponse;
 import domain.world.util.Position;
-import json.JsonHandler;
 import domain.ClientController;
 
 
@@ -56,16 +56,39 @@ public class LaunchCommand extends Command {
         robot = new Robot(robotName, kind, shields, shots, clientHandler, size, start);
 
         // only add robot if it is not already in world.
-        if (!worldGiven.robotInWorld(robot)) {
-            worldGiven.addRobotToWorld(robot);
-            // store robot into robot variable in clientHandler. this way each instance of ClientHandler is connected to a single instance of robot.
-            clientHandler.setRobot(robot);
-            sendCurrentRobotInfo(clientHandler);
-            
-            return new StandardResponse(clientHandler.getRobot().getData(), clientHandler.getRobot().getState(), "robot");
+        Response failed = launch(size, worldGiven);
+        if (failed != null) {
+            return failed;
         }
-        else {
-            return new ErrorResponse("Too many of you in this world");
+        // store robot into robot variable in clientHandler. this way each instance of ClientHandler is connected to a single instance of robot.
+        clientHandler.setRobot(robot);
+        clientHandler.setLaunched(true);
+        sendCurrentRobotInfo(clientHandler);
+
+        return new StandardResponse(clientHandler.getRobot().getData(), clientHandler.getRobot().getState(), "robot");
+    }
+
+    /**
+     * Adds the robot to the world, checking for space, a robot with the same name and a free starting position
+     * in one step, so robots launched at the same time cannot get past the checks together.
+     * Picks another starting position if a robot launched meanwhile took the chosen one.
+     *
+     * @param size The size of the world.
+     * @param worldGiven The world object representing the game world.
+     * @return null if the robot was added, or the error response to send otherwise.
+     */
+    private Response launch(int size, World worldGiven) {
+        LaunchResponse launched;
+        while ((launched = worldGiven.launchRobot(robot, ConfigurationManager.getMaxRobots())) == LaunchResponse.FAILED_OBSTRUCTED) {
+            robot.setPosition(getStartingPosition(size, worldGiven));
+        }
+        switch (launched) {
+            case FAILED_NO_SPACE:
+                return new ErrorResponse("No more space in this world");
+            case FAILED_NAME_TAKEN:
+                return new ErrorResponse("Too many of you in this world");
+            default:
+                return null;
         }
     }
 
@@ -96,7 +119,7 @@ public class LaunchCommand extends Command {
             int randomX = randomInt(-size, size);
             int randomY = randomInt(-size, size);
             randomStartingPosition = new Position(randomX, randomY);
-            positionBlocked = (boolean) SquareObstacle.blocksPosition(randomStartingPosition, worldGiven)[0];
+            positionBlocked = SquareObstacle.blocksPosition(randomStartingPosition, worldGiven).isBlocked();
         }
         return randomStartingPosition;
     }
@@ -108,7 +131,7 @@ public class LaunchCommand extends Command {
      * @return True if the world has space for more robots, false otherwise.
      */
     public boolean worldHasSpace(World world) {
-        int maxRobots = World.getWorldConfiguration().getMaxRobots();
+        int maxRobots = ConfigurationManager.getMaxRobots();
         return world.getRobots().size() < maxRobots;
     }
 
@@ -118,17 +141,7 @@ public class LaunchCommand extends Command {
      * @param clientHandler The client handler of the newly launched robot.
      */
     public void sendCurrentRobotInfo(ClientHandler clientHandler) {
-        for (ClientHandler cH : ClientHandler.getClientHandlers()) {
-            if (cH.getRobot() != null && cH != clientHandler) { // has launched robot into the world
-                Response res = new StandardResponse(new HashMap<>(){{
-                    put("message", "new robot launched into world");
-                    put("robotName", robot.getName());
-                    put("robotKind", robot.getKind());
-                    put("robotState", robot.getState());
-                }}, null, "gui");
-                cH.sendToClient(JsonHandler.serializeResponse(res));
-            }
-        }
+        BroadcastBus.publishArrival(robot, clientHandler);
     }
 
     @Override
@@ -145,12 +158,10 @@ public class LaunchCommand extends Command {
         // create robot.
         robot = new Robot(robotName, kind, shields, shots, size, start);
 
-        if (!worldGiven.robotInWorld(robot)) {
-            worldGiven.addRobotToWorld(robot);
-            return new StandardResponse(robot.getData(), robot.getState(), "robot");
-        }
-        else {
-            return new ErrorResponse("Too many of you in this world");
+        Response failed = launch(size, worldGiven);
+        if (failed != null) {
+            return failed;
         }
+        return new StandardResponse(robot.getData(), robot.getState(), "robot");
     }
 }
@@ -3,6 +3,7 @@ package domain.commands;
 import java.util.*;
 
 import domain.ClientHandler;
+import domain.configuration.ConfigurationManager;
 import domain.response.ErrorResponse;
 import domain.response.Response;
 import domain.response.StandardResponse;
@@ -41,7 +42,7 @@ public class LookCommand extends Command {
      * @return True if the object is within the boundary, false otherwise.
      */
     public boolean inBoundary(Position robotPos, Position objectPos, String direction) {
-        int size = World.getWorldConfiguration().getTileSize();
+        int size = ConfigurationManager.getTileSize();
         int robotX = robotPos.getX() - size;
         int robbotY = robotPos.getY() - size;
 
@@ -80,8 +81,8 @@ public class LookCommand extends Command {
 
         List<Position> obstacles = worldGiven.getObstaclesAsPositions();
         List<Robot>  robots =  worldGiven.getRobots();
-        int visibility = Integer.valueOf(World.getWorldConfiguration().getVisibility());
-        int edge = worldGiven.getSizeForGUI(); //World.getWorldConfiguration().getXConstraint();
+        int visibility = Integer.valueOf(ConfigurationManager.getVisibility());
+        int edge = worldGiven.getSizeForGUI(); //worldGiven.getWorldConfiguration().getXConstraint();
 
         List<Object> objects = new ArrayList<>();
 
@@ -2,11 +2,11 @@ package domain.commands;
 
 import java.util.HashMap;
 
+import domain.BroadcastBus;
 import domain.ClientHandler;
 import domain.response.*;
 import domain.world.Robot;
 import domain.world.World;
-import json.JsonHandler;
 import domain.ClientController;
 
 
@@ -37,24 +37,20 @@ public class QuitCommand extends Command{
      */
     public void sendQuit (ClientHandler clientHandler, World worldGiven, Robot robot) {
         // broadcast to other clients
-        for (ClientHandler cH : ClientHandler.clientHanders) {
-            if (cH.getRobot() != null && cH != clientHandler) { // has launched robot into world.
-                Response res = new StandardResponse(new HashMap<>(){{
-                    put("message", "remove enemy");
-                    put("robotName", robot.getName());
-                }}, null);
-                cH.sendToClient(JsonHandler.serializeResponse(res));
-            }
-        }
+        Response res = new StandardResponse(new HashMap<>(){{
+            put("message", "remove enemy");
+            put("robotName", robot.getName());
+        }}, null);
+        BroadcastBus.publishDeparture(res, robot.getName(), clientHandler);
     }
 
     @Override
     public Response execute(ClientHandler clientHandler, World worldGiven) {
         clientHandler.setCurrentCommand(getName());
-        ClientHandler.clientHanders.remove(clientHandler);
+        clientHandler.removeClientHandler();
 
         Robot robot = clientHandler.getRobot();
-        clientHandler.getWorld().getRobots().remove(robot);
+        clientHandler.getWorld().removeRobot(robot);
 
         sendQuit(clientHandler, worldGiven, robot);
 
@@ -2,12 +2,12 @@ package domain.commands;
 
 import java.util.HashMap;
 
+import domain.BroadcastBus;
 import domain.ClientHandler;
 import domain.ClientController;
 import domain.response.*;
 import domain.world.Robot;
 import domain.world.World;
-import json.JsonHandler;
 
 public class TurnCommand extends Command{
 
@@ -27,16 +27,7 @@ public class TurnCommand extends Command{
      */
     public void broadcastToOtherRobots(ClientHandler clientHandler, Robot robot) {
         // broadcast to other clients
-        for (ClientHandler cH : ClientHandler.getClientHandlers()) {
-            if (cH.getRobot() != null && cH != clientHandler) { // has launched robot into world.
-                Response res = new StandardResponse(new HashMap<>(){{
-                    put("message", "enemy state changed");
-                    put("robotName", robot.getName());
-                    put("robotState", robot.getState());
-                }}, null);
-                cH.sendToClient(JsonHandler.serializeResponse(res));
-            }
-        }
+        BroadcastBus.publishStateChange(clientHandler, robot);
     }
 
     @Override
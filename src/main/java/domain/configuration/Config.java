@@ -11,6 +11,30 @@ public class Config {
     public static final int TILE_SIZE = 0;
     public static final int MAX_ROBOTS = 4;
     public static final int VISIBILITY = 70;
+    public static String ENGINE = "nio";
+    public static int EVENT_LOOPS = Runtime.getRuntime().availableProcessors();
+    public static String THREADS = "platform";
+    public static String FRAMING = "newline";
+    public static final int MAX_FRAME_SIZE = 1024 * 1024;
+    public static int OUTBOUND_CAPACITY = 1024;
+    public static int RESPONSE_CAPACITY = 256;
+    public static int COMBAT_CAPACITY = 1024;
+    public static String OVERFLOW_POLICY = "drop-oldest";
+    public static int METRICS_INTERVAL = 0;
+    public static int COMPRESSION_THRESHOLD = 1024;
+    public static int MAX_CONNECTIONS = 10000;
+    public static int MAX_UNLAUNCHED = 1000;
+    public static int MAX_CONNECTIONS_PER_IP = 100;
+    public static int IDLE_TIMEOUT = 300;
+    public static int HEARTBEAT_INTERVAL = 5;
+    public static int HEARTBEAT_MISSES = 3;
+    public static int INTEREST_RADIUS = VISIBILITY;
+    public static int DELTA_KEYFRAME_INTERVAL = 20;
+    public static int STATE_COALESCE_WINDOW = 0;
+    public static int EVENT_RING_SIZE = 4096;
+    public static String EXECUTION_MODE = "shared";
+    public static int REGION_SIZE = 16;
+    public static int MAX_WORLDS = 64;
 
 
 }
@@ -93,6 +93,223 @@ public class ConfigurationManager {
         return Config.MAX_ROBOTS;
     }
     
+    /**
+     * Retrieves how the socket server serves connections, either "nio" or "blocking".
+     *
+     * @return the server engine
+     */
+    public static String getEngine() {
+        return Config.ENGINE;
+    }
+
+    /**
+     * Retrieves the number of event loop threads used by the nio engine.
+     *
+     * @return the number of event loop threads
+     */
+    public static int getEventLoops() {
+        return Config.EVENT_LOOPS;
+    }
+
+    /**
+     * Retrieves the kind of thread each connection runs on in the blocking engine, either "platform" or "virtual".
+     *
+     * @return the thread mode
+     */
+    public static String getThreads() {
+        return Config.THREADS;
+    }
+
+    /**
+     * Retrieves how requests are delimited on the socket, either "newline" or "length" (4-byte length prefix).
+     *
+     * @return the framing
+     */
+    public static String getFraming() {
+        return Config.FRAMING;
+    }
+
+    /**
+     * Retrieves the largest request a client may send, in bytes.
+     *
+     * @return the maximum frame size
+     */
+    public static int getMaxFrameSize() {
+        return Config.MAX_FRAME_SIZE;
+    }
+
+    /**
+     * Retrieves the number of state updates that may wait to be written to one client.
+     *
+     * @return the state lane capacity
+     */
+    public static int getOutboundCapacity() {
+        return Config.OUTBOUND_CAPACITY;
+    }
+
+    /**
+     * Retrieves the number of responses to its own requests that may wait to be written to one client.
+     *
+     * @return the response lane capacity
+     */
+    public static int getResponseCapacity() {
+        return Config.RESPONSE_CAPACITY;
+    }
+
+    /**
+     * Retrieves the number of combat events that may wait to be written to one client.
+     *
+     * @return the combat lane capacity
+     */
+    public static int getCombatCapacity() {
+        return Config.COMBAT_CAPACITY;
+    }
+
+    /**
+     * Retrieves what happens when the combat or state lane of a client's outbound queue is full: "drop-oldest", "coalesce" or "disconnect".
+     *
+     * @return the overflow policy
+     */
+    public static String getOverflowPolicy() {
+        return Config.OVERFLOW_POLICY;
+    }
+
+    /**
+     * Retrieves the number of seconds between metrics reports, or 0 if metrics are not printed.
+     *
+     * @return the metrics interval
+     */
+    public static int getMetricsInterval() {
+        return Config.METRICS_INTERVAL;
+    }
+
+    /**
+     * Retrieves the smallest message, in bytes, that is compressed for clients that negotiated compression.
+     *
+     * @return the compression threshold
+     */
+    public static int getCompressionThreshold() {
+        return Config.COMPRESSION_THRESHOLD;
+    }
+
+    /**
+     * Retrieves the maximum number of connections served at once, or 0 for no limit.
+     *
+     * @return the maximum number of connections
+     */
+    public static int getMaxConnections() {
+        return Config.MAX_CONNECTIONS;
+    }
+
+    /**
+     * Retrieves the maximum number of connections without a launched robot served at once, or 0 for no limit.
+     *
+     * @return the maximum number of unlaunched connections
+     */
+    public static int getMaxUnlaunched() {
+        return Config.MAX_UNLAUNCHED;
+    }
+
+    /**
+     * Retrieves the maximum number of connections from one address served at once, or 0 for no limit.
+     *
+     * @return the maximum number of connections per address
+     */
+    public static int getMaxConnectionsPerIp() {
+        return Config.MAX_CONNECTIONS_PER_IP;
+    }
+
+    /**
+     * Retrieves the number of seconds a connection may send nothing before it is closed, or 0 to never close it.
+     *
+     * @return the idle timeout
+     */
+    public static int getIdleTimeout() {
+        return Config.IDLE_TIMEOUT;
+    }
+
+    /**
+     * Retrieves the number of seconds of silence after which a client that asked for heartbeats is pinged, or 0 to never ping.
+     *
+     * @return the heartbeat interval
+     */
+    public static int getHeartbeatInterval() {
+        return Config.HEARTBEAT_INTERVAL;
+    }
+
+    /**
+     * Retrieves the number of heartbeat intervals a pinged client may stay silent before it is disconnected.
+     *
+     * @return the number of missed heartbeats allowed
+     */
+    public static int getHeartbeatMisses() {
+        return Config.HEARTBEAT_MISSES;
+    }
+
+    /**
+     * Retrieves the distance within which robots are told about moves and shots, or 0 to tell every robot.
+     *
+     * @return the interest radius
+     */
+    public static int getInterestRadius() {
+        return Config.INTEREST_RADIUS;
+    }
+
+    /**
+     * Retrieves the number of updates about a robot from one full state to the next for clients that receive deltas.
+     *
+     * @return the keyframe interval
+     */
+    public static int getDeltaKeyframeInterval() {
+        return Config.DELTA_KEYFRAME_INTERVAL;
+    }
+
+    /**
+     * Retrieves the window in milliseconds within which state changes of a robot are coalesced, or 0 to send each one.
+     *
+     * @return the state coalescing window
+     */
+    public static int getStateCoalesceWindow() {
+        return Config.STATE_COALESCE_WINDOW;
+    }
+
+    /**
+     * Retrieves the number of events of a world that may wait to be broadcast before publishers have to wait.
+     *
+     * @return the event ring size
+     */
+    public static int getEventRingSize() {
+        return Config.EVENT_RING_SIZE;
+    }
+
+    /**
+     * Retrieves how commands change a world, either "shared" (on the thread of each connection)
+     * or "actor" (on one thread that owns the world).
+     *
+     * @return the execution mode
+     */
+    public static String getExecutionMode() {
+        return Config.EXECUTION_MODE;
+    }
+
+    /**
+     * Retrieves the width and height of the regions whose robots are locked together while a robot moves or fires.
+     *
+     * @return the region size
+     */
+    public static int getRegionSize() {
+        return Config.REGION_SIZE;
+    }
+
+    /**
+     * Retrieves the maximum number of worlds the server hosts at once, or 0 for no limit.
+     *
+     * @return the maximum number of worlds
+     */
+    public static int getMaxWorlds() {
+        return Config.MAX_WORLDS;
+    }
+
     /**
      * Sets the X and Y constraints in the configuration to half of the given size.
      *
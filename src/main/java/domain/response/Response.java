@@ -2,6 +2,8 @@ package domain.response;
 
 import java.util.HashMap;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
  * Represents a generic response object with a result and data.
  */
@@ -9,6 +11,8 @@ public abstract class Response {
 
     private String result;
     private HashMap data;
+    private Object id;
+    private Long sequence;
 
 
     /**
@@ -40,6 +44,46 @@ public abstract class Response {
         return data;
     }
 
+    /**
+     * Returns the id of the request this response answers.
+     * Clients that pipeline requests use it to match responses to requests.
+     *
+     * @return The id of the request, or null if the request had none (it is then left out of the JSON).
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of the request this response answers.
+     *
+     * @param id The id of the request, a number or a string.
+     */
+    public void setId(Object id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the position of this response in the stream of events of the world, if it is an event or a snapshot.
+     * Clients use it to check that no event was missed or seen twice.
+     *
+     * @return The sequence number, or null if the response is not part of the stream (it is then left out of the JSON).
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Sets the position of this response in the stream of events of the world.
+     *
+     * @param sequence The sequence number.
+     */
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
     /**
      * Returns a string representation of the Response object.
      *
@@ -0,0 +1,78 @@
+package domain.world;
+
+import domain.world.util.UpdateResponse;
+
+/**
+ * Represents what a robot or a bullet runs into when a position or a path is checked.
+ *
+ * Collisions are never created while the game runs: the outcomes that carry no robot are shared constants,
+ * and every robot keeps the collision that names it, so checking a move or a shot allocates nothing.
+ */
+public final class Collision {
+
+    /**
+     * Nothing is in the way.
+     */
+    public static final Collision NONE = new Collision(UpdateResponse.SUCCESS, null);
+
+    /**
+     * An obstacle is in the way.
+     */
+    public static final Collision OBSTACLE = new Collision(UpdateResponse.FAILED_OBSTRUCTED, null);
+
+    /**
+     * The edge of the world is in the way.
+     */
+    public static final Collision OUTSIDE_WORLD = new Collision(UpdateResponse.FAILED_OUTSIDE_WORLD, null);
+
+    private final UpdateResponse response;
+    private final Robot otherRobot;
+
+    /**
+     * Constructs a new Collision.
+     *
+     * @param response   the response an update gets because of the collision
+     * @param otherRobot the robot that is in the way, or null if it is not a robot
+     */
+    Collision(UpdateResponse response, Robot otherRobot) {
+        this.response = response;
+        this.otherRobot = otherRobot;
+    }
+
+    /**
+     * Returns the collision with the given robot.
+     *
+     * @param otherRobot the robot that is in the way
+     * @return the collision that names the robot
+     */
+    static Collision with(Robot otherRobot) {
+        return otherRobot.getCollision();
+    }
+
+    /**
+     * Returns the response an update gets because of this collision.
+     *
+     * @return UpdateResponse.SUCCESS, UpdateResponse.FAILED_OBSTRUCTED or UpdateResponse.FAILED_OUTSIDE_WORLD
+     */
+    public UpdateResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * Checks if an obstacle or another robot is in the way.
+     *
+     * @return true if the position or path is blocked, false otherwise
+     */
+    public boolean isBlocked() {
+        return response == UpdateResponse.FAILED_OBSTRUCTED;
+    }
+
+    /**
+     * Returns the robot that is in the way.
+     *
+     * @return the other robot, or null if nothing or something other than a robot is in the way
+     */
+    public Robot getOtherRobot() {
+        return otherRobot;
+    }
+}
@@ -0,0 +1,148 @@
+package domain.world;
+
+import java.util.Arrays;
+
+/**
+ * A map from long keys to values that keeps its keys in a plain array, so looking a key up allocates nothing,
+ * unlike a HashMap whose long keys are boxed on every call.
+ *
+ * Keys are found by linear probing. Removing a key moves the keys probed after it back into the gap,
+ * so lookups never have to step over removed keys. Values may not be null. Not safe for use by several threads.
+ *
+ * @param <V> the type of the values
+ */
+class LongMap<V> {
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * Constructs a new, empty LongMap.
+     */
+    LongMap() {
+        this(16);
+    }
+
+    /**
+     * Constructs a new, empty LongMap.
+     *
+     * @param capacity the number of slots to start with, rounded up to a power of two
+     */
+    LongMap(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        keys = new long[slots];
+        values = new Object[slots];
+        mask = slots - 1;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key
+     * @return the value, or null if the map does not hold the key
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        for (int slot = slotOf(key); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   the key
+     * @param value the value, which may not be null
+     */
+    void put(long key, V value) {
+        int slot = slotOf(key);
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        // keep at least a quarter of the slots free so probe runs stay short.
+        if (size * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the value the key had, or null if the map did not hold it
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int slot = slotOf(key);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        V removed = (V) values[slot];
+        if (removed == null) {
+            return null;
+        }
+        values[slot] = null;
+        size--;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            // a key may fill the gap if the gap lies between the slot it hashes to and the slot it is in.
+            if (((next - slotOf(keys[next])) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                values[next] = null;
+                gap = next;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every key.
+     */
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    private void resize(int slots) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[slots];
+        values = new Object[slots];
+        mask = slots - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
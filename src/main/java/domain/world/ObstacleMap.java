@@ -0,0 +1,163 @@
+package domain.world;
+
+import java.util.List;
+
+/**
+ * The positions blocked by the obstacles of a world, kept as a bitmap so checking a position takes constant time
+ * however many obstacles there are.
+ *
+ * An obstacle of size s with its bottom left corner at (x, y) blocks that corner and, when s is at least 1,
+ * every position from x - s + 1 to x + 2s - 1 across and from y - s + 1 to y + 2s - 1 up, which is what the
+ * overlap test obstacles have always been checked with. The bitmap is split into tiles of 64 by 64 positions,
+ * and only tiles that hold a blocked position are allocated, so a huge world with few obstacles stays small.
+ * Tiles are kept in a LongMap, so looking one up allocates nothing.
+ *
+ * The bitmap is kept twice, once by rows and once by columns, so the first blocked position along a horizontal
+ * or a vertical path is found a 64-bit word at a time.
+ */
+public class ObstacleMap {
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+
+    // a tile holds one long per row; bit i of a row is the position i across from the left edge of the tile.
+    private final LongMap<long[]> rows = new LongMap<>();
+    // the same bitmap turned on its side: a tile holds one long per column; bit i is the position i up from the bottom.
+    private final LongMap<long[]> columns = new LongMap<>();
+
+    /**
+     * Marks the positions blocked by an obstacle.
+     *
+     * @param obstacle the obstacle
+     */
+    public synchronized void add(Obstacle obstacle) {
+        int x = obstacle.getBottomLeftX();
+        int y = obstacle.getBottomLeftY();
+        int size = obstacle.getSize();
+        if (size <= 0) {
+            mark(x, x, y);
+            return;
+        }
+        for (int row = y - size + 1; row <= y + 2 * size - 1; row++) {
+            mark(x - size + 1, x + 2 * size - 1, row);
+        }
+    }
+
+    /**
+     * Forgets every obstacle and marks the positions blocked by the given ones.
+     *
+     * @param obstacles the obstacles
+     */
+    public synchronized void reset(List<Obstacle> obstacles) {
+        rows.clear();
+        columns.clear();
+        for (Obstacle obstacle : obstacles) {
+            add(obstacle);
+        }
+    }
+
+    /**
+     * Checks if a position is blocked by an obstacle.
+     *
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @return true if an obstacle blocks the position, false otherwise
+     */
+    public synchronized boolean isBlocked(int x, int y) {
+        long[] tile = rows.get(key(x >> TILE_SHIFT, y >> TILE_SHIFT));
+        return tile != null && (tile[y & TILE_MASK] & (1L << (x & TILE_MASK))) != 0;
+    }
+
+    /**
+     * Finds the first position blocked by an obstacle along a horizontal or vertical path.
+     *
+     * @param x     the x-coordinate of the start of the path
+     * @param y     the y-coordinate of the start of the path
+     * @param dx    the step across: 1, -1, or 0 if the path is vertical
+     * @param dy    the step up: 1, -1, or 0 if the path is horizontal
+     * @param steps the number of steps the path takes after its start
+     * @return the number of steps from the start to the first blocked position, 0 if the start is blocked,
+     *         or -1 if no position on the path is blocked
+     */
+    public synchronized int firstBlocked(int x, int y, int dx, int dy, int steps) {
+        if (dy == 0) {
+            return firstSet(rows, y, x, dx, steps);
+        }
+        return firstSet(columns, x, y, dy, steps);
+    }
+
+    /**
+     * Finds the first set bit along one line of a bitmap.
+     *
+     * @param tiles     the bitmap, with tiles keyed by the tile along the line and then the tile across it
+     * @param line      the coordinate of the line
+     * @param start     the coordinate along the line to start at
+     * @param direction 1 to look towards higher coordinates, -1 to look towards lower ones
+     * @param steps     the number of positions to look at after the start
+     * @return the number of steps from the start to the first set bit, or -1 if there is none
+     */
+    private static int firstSet(LongMap<long[]> tiles, int line, int start, int direction, int steps) {
+        int end = start + direction * steps;
+        int lineTile = line >> TILE_SHIFT;
+        int lineBit = line & TILE_MASK;
+        int position = start;
+        while (direction > 0 ? position <= end : position >= end) {
+            int tile = position >> TILE_SHIFT;
+            int tileStart = tile << TILE_SHIFT;
+            long[] words = tiles.get(key(tile, lineTile));
+            if (direction > 0) {
+                int last = Math.min(end, tileStart + TILE_MASK);
+                if (words != null) {
+                    long word = words[lineBit] & bits(position & TILE_MASK, last & TILE_MASK);
+                    if (word != 0) {
+                        return tileStart + Long.numberOfTrailingZeros(word) - start;
+                    }
+                }
+                position = last + 1;
+            }
+            else {
+                int last = Math.max(end, tileStart);
+                if (words != null) {
+                    long word = words[lineBit] & bits(last & TILE_MASK, position & TILE_MASK);
+                    if (word != 0) {
+                        return start - (tileStart + 63 - Long.numberOfLeadingZeros(word));
+                    }
+                }
+                position = last - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a word with the bits from one index to another, both included, set.
+     */
+    private static long bits(int from, int to) {
+        return (-1L >>> (63 - to)) & (-1L << from);
+    }
+
+    /**
+     * Marks the positions from one x-coordinate to another, both included, in a row.
+     */
+    private void mark(int fromX, int toX, int y) {
+        for (int x = fromX; x <= toX; x++) {
+            tile(rows, key(x >> TILE_SHIFT, y >> TILE_SHIFT))[y & TILE_MASK] |= 1L << (x & TILE_MASK);
+            tile(columns, key(y >> TILE_SHIFT, x >> TILE_SHIFT))[x & TILE_MASK] |= 1L << (y & TILE_MASK);
+        }
+    }
+
+    /**
+     * Returns a tile of a bitmap, allocating it if none of its positions has been marked yet.
+     */
+    private static long[] tile(LongMap<long[]> tiles, long key) {
+        long[] tile = tiles.get(key);
+        if (tile == null) {
+            tile = new long[1 << TILE_SHIFT];
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    private static long key(int tileX, int tileY) {
+        return ((long) tileX << 32) | (tileY & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,82 @@
+package domain.world;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks that guard the robots of a world one region at a time, so commands in distant parts of a large world
+ * do not wait for each other.
+ *
+ * The world is divided into square regions of a configured size. A command that moves a robot or fires takes
+ * the locks of every region within blocking reach of its path, so a command that could put a robot in its way,
+ * or that could be blocked by the robot it moves, waits until it is done; commands whose paths are far apart
+ * run at the same time.
+ *
+ * Regions share 64 locks in a repeating 8 by 8 pattern: region (x, y) uses the lock at (x mod 8, y mod 8).
+ * Neighbouring regions therefore never share a lock, and the locks a command needs fit in a 64-bit mask.
+ * Locks are always taken in ascending order of their bit in the mask, so two commands can never each hold
+ * a lock the other is waiting for.
+ */
+public class RegionLocks {
+    private static final int SIDE = 8;
+
+    private final ReentrantLock[] locks = new ReentrantLock[SIDE * SIDE];
+    private final int regionSize;
+
+    /**
+     * Constructs a new RegionLocks.
+     *
+     * @param regionSize the width and height of a region
+     */
+    public RegionLocks(int regionSize) {
+        this.regionSize = Math.max(1, regionSize);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Takes the locks of every region that overlaps a rectangle, waiting for commands that hold any of them.
+     *
+     * @param fromX the smallest x-coordinate of the rectangle
+     * @param fromY the smallest y-coordinate of the rectangle
+     * @param toX   the largest x-coordinate of the rectangle
+     * @param toY   the largest y-coordinate of the rectangle
+     * @return the locks taken, to be passed to unlock
+     */
+    public long lock(int fromX, int fromY, int toX, int toY) {
+        long taken = regionsOf(fromX, fromY, toX, toY);
+        for (long remaining = taken; remaining != 0; remaining &= remaining - 1) {
+            locks[Long.numberOfTrailingZeros(remaining)].lock();
+        }
+        return taken;
+    }
+
+    /**
+     * Releases locks taken by lock.
+     *
+     * @param taken the locks lock returned
+     */
+    public void unlock(long taken) {
+        for (long remaining = taken; remaining != 0; remaining &= remaining - 1) {
+            locks[Long.numberOfTrailingZeros(remaining)].unlock();
+        }
+    }
+
+    /**
+     * Returns the mask of the locks of the regions that overlap a rectangle.
+     */
+    private long regionsOf(int fromX, int fromY, int toX, int toY) {
+        int fromRegionX = Math.floorDiv(fromX, regionSize);
+        int fromRegionY = Math.floorDiv(fromY, regionSize);
+        // past 8 regions across, the pattern repeats and every lock of the row or column is already taken.
+        int toRegionX = Math.min(Math.floorDiv(toX, regionSize), fromRegionX + SIDE - 1);
+        int toRegionY = Math.min(Math.floorDiv(toY, regionSize), fromRegionY + SIDE - 1);
+        long mask = 0;
+        for (int regionX = fromRegionX; regionX <= toRegionX; regionX++) {
+            for (int regionY = fromRegionY; regionY <= toRegionY; regionY++) {
+                mask |= 1L << (Math.floorMod(regionX, SIDE) + SIDE * Math.floorMod(regionY, SIDE));
+            }
+        }
+        return mask;
+    }
+}
@@ -7,6 +7,7 @@ import domain.ClientHandler;
 import domain.configuration.ConfigurationManager;
 import domain.world.util.Position;
 import domain.world.util.State;
+import domain.world.util.UpdateResponse;
 
 /**
  * Represents a robot in the game.
@@ -28,6 +29,8 @@ public class Robot {
     private final ConfigurationManager configurationManager;
     private ClientHandler clientHandler;
     private final int size;
+    private RobotGrid robotGrid;
+    private final Collision collision = new Collision(UpdateResponse.FAILED_OBSTRUCTED, this);
 
     /**
      * Constructs a new Robot object.
@@ -254,6 +257,28 @@ public class Robot {
     public void setPosition(Position position) {
         this.position = position;
         state.replace("position", position.asArray());
+        RobotGrid grid = robotGrid;
+        if (grid != null) {
+            grid.moved(this);
+        }
+    }
+
+    /**
+     * Sets the grid that indexes the robot by its position, so the grid is told when the robot moves.
+     *
+     * @param robotGrid the grid of the world the robot is in, or null once it has left the world
+     */
+    void setRobotGrid(RobotGrid robotGrid) {
+        this.robotGrid = robotGrid;
+    }
+
+    /**
+     * Returns the collision that names this robot, for checks that find it in the way.
+     *
+     * @return the collision with this robot
+     */
+    Collision getCollision() {
+        return collision;
     }
 
     /**
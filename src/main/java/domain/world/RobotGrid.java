@@ -0,0 +1,245 @@
+package domain.world;
+
+import java.util.HashMap;
+
+import domain.world.util.Position;
+
+/**
+ * An index of the robots in a world by the grid cell they stand in, so the robots that may block a position are
+ * found by looking at the cells around it instead of at every robot in the world.
+ *
+ * A robot blocks its own position and every position less than twice the tile size away from it on both axes.
+ * Cells are that wide, so a robot that blocks a position always stands in the cell of the position or in one of
+ * the eight cells around it. When several robots block a position, the one added to the world first is reported,
+ * as a scan of the world's list of robots would.
+ *
+ * Cells are kept in a LongMap, and the robots in a cell are chained through their entries, so looking a cell up
+ * allocates nothing and neither does a robot moving from one cell to another.
+ */
+public class RobotGrid {
+
+    /**
+     * A robot in the grid, with the order it was added in, the cell it is filed under and its neighbours in that cell.
+     */
+    private static class Entry {
+        private final Robot robot;
+        private final long order;
+        private long cell;
+        private Entry previous;
+        private Entry next;
+
+        private Entry(Robot robot, long order) {
+            this.robot = robot;
+            this.order = order;
+        }
+    }
+
+    private final int reach;
+    private final int cellSize;
+    // the first entry of each cell that holds a robot.
+    private final LongMap<Entry> cells = new LongMap<>();
+    private final HashMap<Robot, Entry> entries = new HashMap<>();
+    private long nextOrder = 0;
+
+    /**
+     * Constructs a new, empty RobotGrid.
+     *
+     * @param tileSize the tile size of the world
+     */
+    public RobotGrid(int tileSize) {
+        this.reach = tileSize * 2;
+        this.cellSize = Math.max(1, reach);
+    }
+
+    /**
+     * Returns how close another position must be to a robot for the robot to block it.
+     *
+     * @return the blocking reach, or 0 if a robot blocks only its own position
+     */
+    public int getReach() {
+        return reach;
+    }
+
+    /**
+     * Adds a robot at its current position. From now on the robot tells the grid when it moves.
+     *
+     * @param robot the robot to add
+     */
+    public synchronized void add(Robot robot) {
+        if (entries.containsKey(robot)) {
+            return;
+        }
+        Entry entry = new Entry(robot, nextOrder++);
+        entry.cell = cellOf(robot.getPosition().getX(), robot.getPosition().getY());
+        entries.put(robot, entry);
+        addToCell(entry);
+        robot.setRobotGrid(this);
+    }
+
+    /**
+     * Removes a robot.
+     *
+     * @param robot the robot to remove
+     */
+    public synchronized void remove(Robot robot) {
+        Entry entry = entries.remove(robot);
+        if (entry == null) {
+            return;
+        }
+        removeFromCell(entry);
+        robot.setRobotGrid(null);
+    }
+
+    /**
+     * Files a robot under the cell of its current position. Called by the robot when it moves.
+     *
+     * @param robot the robot that moved
+     */
+    synchronized void moved(Robot robot) {
+        Entry entry = entries.get(robot);
+        if (entry == null) {
+            return;
+        }
+        long cell = cellOf(robot.getPosition().getX(), robot.getPosition().getY());
+        if (cell == entry.cell) {
+            return;
+        }
+        removeFromCell(entry);
+        entry.cell = cell;
+        addToCell(entry);
+    }
+
+    /**
+     * Finds the robot that blocks a position.
+     *
+     * @param x       the x-coordinate of the position
+     * @param y       the y-coordinate of the position
+     * @param ignored a robot that never blocks, e.g. the one that is moving, or null
+     * @return the first robot added that blocks the position, or null if no robot does
+     */
+    public synchronized Robot findBlocking(int x, int y, Robot ignored) {
+        int cellX = Math.floorDiv(x, cellSize);
+        int cellY = Math.floorDiv(y, cellSize);
+        // with a tile size of 0 a robot only blocks its own position, which is always in the same cell.
+        int range = reach > 0 ? 1 : 0;
+        Entry found = null;
+        for (int i = cellX - range; i <= cellX + range; i++) {
+            for (int j = cellY - range; j <= cellY + range; j++) {
+                for (Entry entry = cells.get(key(i, j)); entry != null; entry = entry.next) {
+                    if (entry.robot != ignored && (found == null || entry.order < found.order)
+                            && blocks(entry.robot.getPosition(), x, y)) {
+                        found = entry;
+                    }
+                }
+            }
+        }
+        return found == null ? null : found.robot;
+    }
+
+    /**
+     * Finds the first robot that blocks a horizontal or vertical path.
+     *
+     * @param x       the x-coordinate of the start of the path
+     * @param y       the y-coordinate of the start of the path
+     * @param dx      the step across: 1, -1, or 0 if the path is vertical
+     * @param dy      the step up: 1, -1, or 0 if the path is horizontal
+     * @param steps   the number of steps the path takes after its start
+     * @param ignored a robot that never blocks, e.g. the one that is moving, or null
+     * @return the robot that blocks the position nearest the start, the first added if several block it,
+     *         or null if no robot blocks the path
+     */
+    public synchronized Robot findBlocking(int x, int y, int dx, int dy, int steps, Robot ignored) {
+        int endX = x + dx * steps;
+        int endY = y + dy * steps;
+        int range = reach > 0 ? 1 : 0;
+        int fromCellX = Math.floorDiv(Math.min(x, endX), cellSize) - range;
+        int toCellX = Math.floorDiv(Math.max(x, endX), cellSize) + range;
+        int fromCellY = Math.floorDiv(Math.min(y, endY), cellSize) - range;
+        int toCellY = Math.floorDiv(Math.max(y, endY), cellSize) + range;
+        Entry found = null;
+        int foundStep = -1;
+        for (int i = fromCellX; i <= toCellX; i++) {
+            for (int j = fromCellY; j <= toCellY; j++) {
+                for (Entry entry = cells.get(key(i, j)); entry != null; entry = entry.next) {
+                    if (entry.robot == ignored) {
+                        continue;
+                    }
+                    int step = stepBlockedBy(entry.robot, x, y, dx, dy, steps);
+                    if (step >= 0 && (found == null || step < foundStep || (step == foundStep && entry.order < found.order))) {
+                        found = entry;
+                        foundStep = step;
+                    }
+                }
+            }
+        }
+        return found == null ? null : found.robot;
+    }
+
+    /**
+     * Finds where a robot first blocks a horizontal or vertical path.
+     *
+     * @param robot the robot
+     * @param x     the x-coordinate of the start of the path
+     * @param y     the y-coordinate of the start of the path
+     * @param dx    the step across: 1, -1, or 0 if the path is vertical
+     * @param dy    the step up: 1, -1, or 0 if the path is horizontal
+     * @param steps the number of steps the path takes after its start
+     * @return the number of steps from the start to the first position the robot blocks, or -1 if it blocks none
+     */
+    public int stepBlockedBy(Robot robot, int x, int y, int dx, int dy, int steps) {
+        Position position = robot.getPosition();
+        // measure along the path and across it, whichever axis the path follows.
+        int along = dy == 0 ? position.getX() - x : position.getY() - y;
+        int across = dy == 0 ? position.getY() - y : position.getX() - x;
+        int direction = dy == 0 ? dx : dy;
+        if (across != 0 && Math.abs(across) >= reach) {
+            return -1;
+        }
+        // the robot blocks the positions less than reach from it along the path, or only its own if reach is 0.
+        int spread = Math.max(reach - 1, 0);
+        int first = Math.max(direction * along - spread, 0);
+        return first <= Math.min(direction * along + spread, steps) ? first : -1;
+    }
+
+    private boolean blocks(Position position, int x, int y) {
+        if (position.getX() == x && position.getY() == y) {
+            return true;
+        }
+        return Math.abs(position.getX() - x) < reach && Math.abs(position.getY() - y) < reach;
+    }
+
+    private void addToCell(Entry entry) {
+        Entry first = cells.get(entry.cell);
+        entry.previous = null;
+        entry.next = first;
+        if (first != null) {
+            first.previous = entry;
+        }
+        cells.put(entry.cell, entry);
+    }
+
+    private void removeFromCell(Entry entry) {
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        }
+        else if (entry.next != null) {
+            cells.put(entry.cell, entry.next);
+        }
+        else {
+            cells.remove(entry.cell);
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private long cellOf(int x, int y) {
+        return key(Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize));
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+}
@@ -1,17 +1,13 @@
 package domain.world;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import domain.configuration.ConfigurationManager;
 import domain.world.util.Position;
 
 
 public class SquareObstacle implements Obstacle {
     
     private Position position;
-    public static List<Position> obstacles = new ArrayList<>();
-
-    private static int size = World.getWorldConfiguration().getTileSize();
+    private int size = ConfigurationManager.getTileSize();
 
     /**
      * Creates a new SquareObstacle at the specified position.
@@ -57,7 +53,6 @@ public class SquareObstacle implements Obstacle {
     }
 
     public void setSize(int givenSize) {
-        // this obviously needs to be changed , it does not work
         this.size = givenSize;
     }
 
@@ -66,25 +61,20 @@ public class SquareObstacle implements Obstacle {
      *
      * @param position the position to check
      * @param robot    the robot to ignore during the check
-     * @return an array with the result of the check: [true] if the position is blocked by the obstacle,
-     *         [true, otherRobot] if the position is blocked by another robot, or [false] if the position is not blocked
+     * @return Collision.OBSTACLE if the position is blocked by an obstacle,
+     *         the collision with the other robot if it is blocked by another robot, or Collision.NONE if it is not blocked
      */
-    public static Object[] blocksPosition(Position position, Robot robot, World worldGiven) {
+    public static Collision blocksPosition(Position position, Robot robot, World worldGiven) {
         int positionX = position.getX();
         int positionY = position.getY();
 
         // Check if the position is the same as the obstacle's position
-        Object[] isBlockedObstacle = checkObstacles(positionX, positionY, worldGiven);
-        if (((boolean) isBlockedObstacle[0]) == true) {
-            return isBlockedObstacle;
-        }
-
-        Object[] isBlockedRobot = checkRobotsWorld(position, positionX, positionY, worldGiven, robot);
-        if (((boolean) isBlockedRobot[0]) == true) {
-            return isBlockedRobot;
+        Collision obstacle = checkObstacles(positionX, positionY, worldGiven);
+        if (obstacle.isBlocked()) {
+            return obstacle;
         }
 
-        return new Object[]{false};
+        return checkRobotsWorld(position, positionX, positionY, worldGiven, robot);
     }
 
     /**
@@ -92,26 +82,20 @@ public class SquareObstacle implements Obstacle {
      *
      * @param position the position to check
      * @param worldGiven the world in which to check for obstacles and robots
-     * @return an array with the result of the check:
-     *         [true] if the position is blocked by an obstacle,
-     *         [true, otherRobot] if the position is blocked by another robot,
-     *         [false] if the position is not blocked
+     * @return Collision.OBSTACLE if the position is blocked by an obstacle,
+     *         the collision with the other robot if it is blocked by another robot,
+     *         Collision.NONE if the position is not blocked
      */
-    public static Object[] blocksPosition(Position position, World worldGiven) {
+    public static Collision blocksPosition(Position position, World worldGiven) {
         int positionX = position.getX();
         int positionY = position.getY();
 
-        Object[] isBlockedObstacle = checkObstacles(positionX, positionY, worldGiven);
-        if (((boolean) isBlockedObstacle[0]) == true) {
-            return isBlockedObstacle;
-        }
-
-        Object[] isBlockedRobot = checkRobotsLaunch(position, positionX, positionY, worldGiven);
-        if (((boolean) isBlockedRobot[0]) == true) {
-            return isBlockedRobot;
+        Collision obstacle = checkObstacles(positionX, positionY, worldGiven);
+        if (obstacle.isBlocked()) {
+            return obstacle;
         }
 
-        return new Object[]{false};
+        return checkRobotsLaunch(position, positionX, positionY, worldGiven);
     }
     
 
@@ -120,9 +104,9 @@ public class SquareObstacle implements Obstacle {
      * Since our robot can only move in horizontal or vertical lines (no diagonals yet), we can assume that either x1==x2 or y1==y2.
      * @param a first position
      * @param b second position
-     * @return `true` if this obstacle is in the way
+     * @return the first collision on the path, or Collision.NONE if nothing is in the way
      */
-    public static Object[] blocksPath(Position a, Position b, Robot robot, World worldGiven) {
+    public static Collision blocksPath(Position a, Position b, Robot robot, World worldGiven) {
         if (a.getX() == b.getX()) { // y is changing
             return blocksYPath(a, b, robot, worldGiven);
         }
@@ -137,27 +121,12 @@ public class SquareObstacle implements Obstacle {
      * @param a     the starting position
      * @param b     the ending position
      * @param robot the robot to ignore during the check
-     * @return an array with the result of the check: [true] if the path is blocked by the obstacle,
-     *         [true, otherRobot] if the path is blocked by another robot, or [false] if the path is not blocked
+     * @return Collision.OBSTACLE if the path is blocked by an obstacle,
+     *         the collision with the other robot if it is blocked by another robot, or Collision.NONE if it is not blocked
      */
-    public static Object[] blocksYPath(Position a, Position b, Robot robot, World worldGiven) {
-        if ( b.getY() > a.getY()) { // moving up
-            for (int i=a.getY(); i <= b.getY(); i++) {
-                Object[] result = blocksPosition(new Position(a.getX(), i), robot, worldGiven);
-                if ((boolean) result[0]) {
-                    return result;
-                }
-            }
-        }
-        else{
-            for (int i=a.getY(); i >= b.getY(); i--) {
-                Object[] result = blocksPosition(new Position(a.getX(), i), robot, worldGiven);
-                if ((boolean) result[0]) {
-                    return result;
-                }
-            }
-        }
-        return new Object[]{false};
+    public static Collision blocksYPath(Position a, Position b, Robot robot, World worldGiven) {
+        int direction = b.getY() > a.getY() ? 1 : -1;
+        return blocksPath(a, 0, direction, Math.abs(b.getY() - a.getY()), robot, worldGiven);
     }
 
     /**
@@ -167,29 +136,62 @@ public class SquareObstacle implements Obstacle {
      * @param b     the ending position
      * @param robot the robot to ignore during the check
      * @param worldGiven the world where the robot and obstacles are located
-     * @return an array with the result of the check:
-     *         [true] if the path is blocked by the obstacle,
-     *         [true, otherRobot] if the path is blocked by another robot, or
-     *         [false] if the path is not blocked
+     * @return Collision.OBSTACLE if the path is blocked by an obstacle,
+     *         the collision with the other robot if it is blocked by another robot, or
+     *         Collision.NONE if the path is not blocked
+     */
+    public static Collision blocksXPath(Position a, Position b, Robot robot, World worldGiven) {
+        int direction = b.getX() > a.getX() ? 1 : -1;
+        return blocksPath(a, direction, 0, Math.abs(b.getX() - a.getX()), robot, worldGiven);
+    }
+
+    /**
+     * Finds what blocks the first blocked position on a horizontal or vertical path.
+     * The whole path is checked in one query against the obstacle map and the robot grid of the world, and gives
+     * the same answer as checking each position in turn with blocksPosition, starting with the position a.
+     *
+     * @param a     the starting position, which is checked too
+     * @param dx    the step across: 1, -1, or 0 if the path is vertical
+     * @param dy    the step up: 1, -1, or 0 if the path is horizontal
+     * @param steps the number of steps the path takes after a
+     * @param robot the robot to ignore during the check
+     * @param worldGiven the world where the robot and obstacles are located
+     * @return Collision.OBSTACLE if an obstacle blocks the first blocked position,
+     *         the collision with the other robot if another robot blocks it, or
+     *         Collision.NONE if the path is not blocked
      */
-    public static Object[] blocksXPath(Position a, Position b, Robot robot, World worldGiven) {
-        if ( b.getX() > a.getX()) { // robot moving to the right
-            for (int i=a.getX(); i <= b.getX(); i++) {
-                Object[] result = blocksPosition(new Position(i, a.getY()), robot, worldGiven);
-                if ((boolean) result[0]) {
-                    return result;
-                }
+    public static Collision blocksPath(Position a, int dx, int dy, int steps, Robot robot, World worldGiven) {
+        int obstacleStep = worldGiven.getObstacleMap().firstBlocked(a.getX(), a.getY(), dx, dy, steps);
+        // an obstacle wins over a robot at the same position, so only robots before the obstacle count.
+        int robotSteps = obstacleStep < 0 ? steps : obstacleStep - 1;
+        if (robotSteps >= 0) {
+            Robot otherRobot = worldGiven.getRobotGrid().findBlocking(a.getX(), a.getY(), dx, dy, robotSteps, robot);
+            if (otherRobot != null) {
+                return Collision.with(otherRobot);
             }
         }
-        else{
-            for (int i=a.getX(); i >= b.getX(); i--) {
-                Object[] result = blocksPosition(new Position(i, a.getY()), robot, worldGiven);
-                if ((boolean) result[0]) {
-                    return result;
-                }
-            }
+        return obstacleStep < 0 ? Collision.NONE : Collision.OBSTACLE;
+    }
+
+    /**
+     * Finds how far along a path the collision found on it by blocksPath happens.
+     *
+     * @param collision the collision blocksPath found on the path
+     * @param a     the starting position of the path
+     * @param dx    the step across
+     * @param dy    the step up
+     * @param steps the number of steps the path takes after a
+     * @param worldGiven the world where the robot and obstacles are located
+     * @return the number of steps from a to the first blocked position, or -1 if the path is not blocked
+     */
+    public static int blockedStep(Collision collision, Position a, int dx, int dy, int steps, World worldGiven) {
+        if (collision.getOtherRobot() != null) {
+            return worldGiven.getRobotGrid().stepBlockedBy(collision.getOtherRobot(), a.getX(), a.getY(), dx, dy, steps);
+        }
+        if (collision.isBlocked()) {
+            return worldGiven.getObstacleMap().firstBlocked(a.getX(), a.getY(), dx, dy, steps);
         }
-        return new Object[]{false};
+        return -1;
     }
 
     /**
@@ -212,40 +214,17 @@ public class SquareObstacle implements Obstacle {
      * @param positionY the y-coordinate of the position
      * @param worldGiven the world where the robot and obstacles are located
      * @param robot the robot to ignore during the check
-     * @return an array with the result of the check:
-     *         [true, otherRobot] if the position is blocked by another robot,
-     *         [false] if the position is not blocked
+     * @return the collision with the other robot if the position is blocked by another robot,
+     *         Collision.NONE if the position is not blocked
      */
-    public static Object[] checkRobotsWorld (Position position, int positionX, int positionY, World worldGiven, Robot robot) {
-        // Check for other robots
-        for (Robot otherRobot : worldGiven.getRobots()) {
-            // Ignore the current robot
-            if (otherRobot == robot) {
-                continue;
-            }
-
-            // if the position is the same as the other robot's position
-            if (positionX == otherRobot.getPosition().getX() && positionY == otherRobot.getPosition().getY()) {
-                return new Object[]{true, otherRobot};
-            }
-        
-            // Calculate the center coordinates of each square
-            int otherRobotX = otherRobot.getPosition().getX();
-            int otherRobotY = otherRobot.getPosition().getY();
-            int robotPositionX = position.getX();
-            int robotPositionY = position.getY();
-
-            // Calculate the distance between the centers of the squares
-            int distanceX = Math.abs(otherRobotX - robotPositionX);
-            int distanceY = Math.abs(otherRobotY - robotPositionY);
-        
-            // Check if the current position is inside the other robot's boundary
-            if (distanceX < size * 2 && distanceY < size * 2) {
-                return new Object[]{true, otherRobot};
-            }
+    public static Collision checkRobotsWorld (Position position, int positionX, int positionY, World worldGiven, Robot robot) {
+        // only the robots in the cells around the position can block it
+        Robot otherRobot = worldGiven.getRobotGrid().findBlocking(positionX, positionY, robot);
+        if (otherRobot != null) {
+            return Collision.with(otherRobot);
         }
 
-        return new Object[]{false};
+        return Collision.NONE;
     }
 
     /**
@@ -254,33 +233,12 @@ public class SquareObstacle implements Obstacle {
      * @param positionX the x-coordinate of the position to check
      * @param positionY the y-coordinate of the position to check
      * @param worldGiven the world in which to check for obstacles
-     * @return an array with the result of the check:
-     *         [true] if the position is blocked by the obstacle,
-     *         [false] if the position is not blocked
+     * @return Collision.OBSTACLE if the position is blocked by an obstacle,
+     *         Collision.NONE if the position is not blocked
      */
-    public static Object[] checkObstacles (int positionX, int positionY, World worldGiven) {
-        // Check for obstacles
-        for (Obstacle obstacle : worldGiven.getObstacles()) {
-            
-            // if the position is the same as the obstacle, return true
-            if (positionX == obstacle.getBottomLeftX() && positionY == obstacle.getBottomLeftY()) {
-                return new Object[]{true};
-            }
-            
-            int obstacleRight = obstacle.getBottomLeftX() + obstacle.getSize();
-            int obstacleTop = obstacle.getBottomLeftY() + obstacle.getSize() * 2;
-
-            boolean isOverlapX = (obstacle.getBottomLeftX() <= positionX && positionX < obstacleRight + obstacle.getSize()) ||
-                                (positionX <= obstacle.getBottomLeftX() && obstacle.getBottomLeftX() < positionX + obstacle.getSize());
-            
-            boolean isOverlapY = (obstacle.getBottomLeftY() <= positionY && positionY < obstacleTop) ||
-                                (positionY <= obstacle.getBottomLeftY() && obstacle.getBottomLeftY() < positionY + obstacle.getSize());
-
-            if (isOverlapX && isOverlapY) {
-                return new Object[]{true};
-            }
-        }
-        return new Object[]{false};
+    public static Collision checkObstacles (int positionX, int positionY, World worldGiven) {
+        // the obstacle map holds every position the obstacles overlap
+        return worldGiven.getObstacleMap().isBlocked(positionX, positionY) ? Collision.OBSTACLE : Collision.NONE;
     }
 
     /**
@@ -290,36 +248,16 @@ public class SquareObstacle implements Obstacle {
      * @param positionX the x-coordinate of the position
      * @param positionY the y-coordinate of the position
      * @param worldGiven the world in which to check for robots
-     * @return an array with the result of the check:
-     *         [true, otherRobot] if the position is blocked by another robot,
-     *         [false] if the position is not blocked
+     * @return the collision with the other robot if the position is blocked by another robot,
+     *         Collision.NONE if the position is not blocked
      */
-    public static Object[] checkRobotsLaunch (Position position, int positionX, int positionY, World worldGiven) {
-
-        // Check for other robots
-        for (Robot otherRobot : worldGiven.getRobots()) {
-
-            // if the position is the same as the other robot's position
-            if (positionX == otherRobot.getPosition().getX() && positionY == otherRobot.getPosition().getY()) {
-                return new Object[]{true, otherRobot};
-            }
-        
-            // Calculate the center coordinates of each square
-            int otherRobotX = otherRobot.getPosition().getX();
-            int otherRobotY = otherRobot.getPosition().getY();
-            int robotPositionX = position.getX();
-            int robotPositionY = position.getY();
-
-            // Calculate the distance between the centers of the squares
-            int distanceX = Math.abs(otherRobotX - robotPositionX);
-            int distanceY = Math.abs(otherRobotY - robotPositionY);
-        
-            // Check if the current position is inside the other robot's boundary
-            if (distanceX < size * 2 && distanceY < size * 2) {
-                return new Object[]{true, otherRobot};
-            }
+    public static Collision checkRobotsLaunch (Position position, int positionX, int positionY, World worldGiven) {
+        // only the robots in the cells around the position can block it
+        Robot otherRobot = worldGiven.getRobotGrid().findBlocking(positionX, positionY, null);
+        if (otherRobot != null) {
+            return Collision.with(otherRobot);
         }
 
-        return new Object[]{false};
+        return Collision.NONE;
     }
 }
@@ -2,12 +2,21 @@ package domain.world;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.HashMap;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+import domain.BroadcastBus;
+import domain.ClientRegistry;
+import domain.EventRing;
+import domain.EventStream;
+import domain.PendingStateChanges;
+import domain.WorldActor;
 import domain.configuration.ConfigurationManager;
+import domain.world.util.LaunchResponse;
 import domain.world.util.Position;
-import domain.world.util.UpdateResponse;
 
 /**
 * Enum used to track direction
@@ -20,22 +29,31 @@ enum Direction {
  * The World class represents the game world, including its configuration, obstacles, and robots.
  */
 public class World {
-    public static  ConfigurationManager worldConfiguration = new ConfigurationManager();
-    protected Position TOP_LEFT = new Position(-worldConfiguration.getXConstraint(), worldConfiguration.getYConstraint());
-    protected Position BOTTOM_RIGHT = new Position(worldConfiguration.getXConstraint(), -worldConfiguration.getYConstraint());
+    protected Position TOP_LEFT = new Position(-ConfigurationManager.getXConstraint(), ConfigurationManager.getYConstraint());
+    protected Position BOTTOM_RIGHT = new Position(ConfigurationManager.getXConstraint(), -ConfigurationManager.getYConstraint());
     private List<Obstacle> obstacles = new ArrayList<>();
     private List<Position> obstaclesAsPositions = new ArrayList<>();
-    private HashMap<String, Robot> nameAndRobotMap = new HashMap<String, Robot>();
-    public static ArrayList<Robot> robots;
+    // robots launch and quit under the membership lock; readers may look at both collections at any time.
+    private final Map<String, Robot> nameAndRobotMap = new ConcurrentHashMap<>();
+    private final List<Robot> robots = new CopyOnWriteArrayList<>();
+    private final ReentrantLock membershipLock = new ReentrantLock();
     public String worldName = "";
+    private final ClientRegistry clientRegistry = new ClientRegistry();
+    private final EventStream eventStream = new EventStream();
+    private final EventRing eventRing = BroadcastBus.createEventRing(this);
+    private final PendingStateChanges pendingStateChanges = new PendingStateChanges();
+    private final RobotGrid robotGrid = new RobotGrid(ConfigurationManager.getTileSize());
+    private final ObstacleMap obstacleMap = new ObstacleMap();
+    private final WorldActor worldActor = ConfigurationManager.getExecutionMode().equals("actor") ? new WorldActor("world-actor") : null;
+    private final RegionLocks regionLocks = new RegionLocks(ConfigurationManager.getRegionSize());
     
     /**
      * Constructs a new World object.
      * Initializes the list of robots and creates obstacles in the world.
      */
     public World(){
-        robots = new ArrayList<>();
         this.obstacles = createObstacles();
+        obstacleMap.reset(obstacles);
     }
 
     /**
@@ -43,7 +61,6 @@ public class World {
      * Initializes the list of robots and creates obstacles in the world.
      */
     public World(int size) {
-        robots = new ArrayList<>();
         setSize(size);
     }
 
@@ -52,7 +69,6 @@ public class World {
      * Initializes the list of robots and creates obstacles in the world.
      */
     public World(int size, List<Obstacle> obstaclesGiven) {
-        robots = new ArrayList<>();
         setSize(size);
         setObstacles(obstaclesGiven);
     }
@@ -77,6 +93,62 @@ public class World {
         return BOTTOM_RIGHT;
     }
 
+    /**
+     * Returns the registry of the clients connected to this world.
+     *
+     * @return the client registry
+     */
+    public ClientRegistry getClientRegistry() {
+        return clientRegistry;
+    }
+
+    /**
+     * Returns the stream of events broadcast in this world.
+     *
+     * @return the event stream
+     */
+    public EventStream getEventStream() {
+        return eventStream;
+    }
+
+    /**
+     * Returns the ring that carries the events of this world to the clients.
+     *
+     * @return the event ring
+     */
+    public EventRing getEventRing() {
+        return eventRing;
+    }
+
+    /**
+     * Returns the state changes of the robots in this world that are being held back for the coalescing window.
+     *
+     * @return the pending state changes
+     */
+    public PendingStateChanges getPendingStateChanges() {
+        return pendingStateChanges;
+    }
+
+    /**
+     * Returns the actor that owns this world, if commands are executed on one thread per world.
+     *
+     * @return the world actor, or null if each connection executes its own commands
+     */
+    public WorldActor getWorldActor() {
+        return worldActor;
+    }
+
+    /**
+     * Stops the threads of this world, its event consumer and, in the "actor" execution mode, its actor.
+     * Called once the server no longer hosts the world.
+     */
+    public void shutdown() {
+        eventRing.stop();
+        if (worldActor != null) {
+            worldActor.stop();
+        }
+    }
+
     /**
      * Returns the current world object.
      *
@@ -99,6 +171,7 @@ public class World {
             if (obstaclePosition.isIn(TOP_LEFT, BOTTOM_RIGHT)) {
                 this.obstacles.add(obstacle);
                 this.obstaclesAsPositions.add(obstaclePosition);
+                obstacleMap.add(obstacle);
             }
         }
     }
@@ -121,6 +194,7 @@ public class World {
                 this.obstaclesAsPositions.add(obstaclePosition);
             }
         }
+        obstacleMap.reset(obstacles);
     }
 
     /**
@@ -146,15 +220,6 @@ public class World {
         return start + random.nextInt(stop - start + 1);
     }
 
-    /**
-     * Returns the world configuration.
-     *
-     * @return the ConfigurationManager object representing the world configuration
-     */
-    public static ConfigurationManager getWorldConfiguration() {
-        return worldConfiguration;
-    }
-
     /**
      * Creates a list of obstacles in the world.
      *
@@ -167,7 +232,7 @@ public class World {
             int x = randomInt(TOP_LEFT.getX(), BOTTOM_RIGHT.getX());
             int y = randomInt(BOTTOM_RIGHT.getY(), TOP_LEFT.getY());
             // rather check if the position is blocked.
-            if (!SquareObstacle.obstacles.contains(new Position(x, y))) {
+            if (!obstaclesAsPositions.contains(new Position(x, y))) {
                 SquareObstacle obstacle = new SquareObstacle(x, y);
                 obstacles.add(obstacle);
                 obstaclesAsPositions.add(new Position(x, y));
@@ -213,10 +278,11 @@ public class World {
 
     /**
      * Returns the list of robots in the world.
+     * The list may be read while robots launch and quit; it is changed only through the methods of the world.
      *
      * @return the list of robots
      */
-    public ArrayList<Robot> getRobots() {
+    public List<Robot> getRobots() {
         return robots;
     }
 
@@ -226,10 +292,56 @@ public class World {
      * @param robot the robot to add
      */
     public void addRobotToWorld(Robot robot) {
+        membershipLock.lock();
+        long locked = lockRegions(robot.getPosition(), 0, 0, 0);
+        try {
+            addMember(robot);
+        } finally {
+            regionLocks.unlock(locked);
+            membershipLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a robot to the world if the world has room for it, no robot in the world has its name
+     * and nothing blocks its position. The checks and the adding happen while holding the membership lock
+     * and the lock of the robot's region, so robots launched at the same time can neither exceed the limit,
+     * share a name nor be placed on the same position.
+     *
+     * @param robot     the robot to launch, at its starting position
+     * @param maxRobots the maximum number of robots in the world
+     * @return LaunchResponse.SUCCESS if the robot was added, or the reason it was not
+     */
+    public LaunchResponse launchRobot(Robot robot, int maxRobots) {
+        membershipLock.lock();
+        long locked = lockRegions(robot.getPosition(), 0, 0, 0);
+        try {
+            if (robots.size() >= maxRobots) {
+                return LaunchResponse.FAILED_NO_SPACE;
+            }
+            if (robotInWorld(robot)) {
+                return LaunchResponse.FAILED_NAME_TAKEN;
+            }
+            if (SquareObstacle.blocksPosition(robot.getPosition(), this).isBlocked()) {
+                return LaunchResponse.FAILED_OBSTRUCTED;
+            }
+            addMember(robot);
+            return LaunchResponse.SUCCESS;
+        } finally {
+            regionLocks.unlock(locked);
+            membershipLock.unlock();
+        }
+    }
+
+    /**
+     * Files a robot under the world's robots, its name and its position. Must be called while holding the membership lock
+     * and the lock of the robot's region.
+     */
+    private void addMember(Robot robot) {
         robots.add(robot);
         nameAndRobotMap.put(robot.getName(), robot);
+        robotGrid.add(robot);
     }
-    
 
     /**
      * Removes a robot from the world.
@@ -237,7 +349,55 @@ public class World {
      * @param robot the robot to remove
      */
     public void removeRobot(Robot robot) {
-        robots.remove(robot);
+        membershipLock.lock();
+        long locked = lockRegions(robot.getPosition(), 0, 0, 0);
+        try {
+            robots.remove(robot);
+            nameAndRobotMap.remove(robot.getName(), robot);
+            robotGrid.remove(robot);
+        } finally {
+            regionLocks.unlock(locked);
+            membershipLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the locks of the regions where a robot could block a horizontal or vertical path, or be blocked by a robot on it.
+     * Nothing is locked if the world is owned by an actor, whose thread is the only one that changes it.
+     *
+     * @param start the start of the path
+     * @param dx    the step across
+     * @param dy    the step up
+     * @param steps the number of steps the path takes
+     * @return the locks taken, to be released with regionLocks.unlock
+     */
+    private long lockRegions(Position start, int dx, int dy, int steps) {
+        if (worldActor != null) {
+            return 0;
+        }
+        int spread = Math.max(robotGrid.getReach() - 1, 0);
+        int endX = start.getX() + dx * steps;
+        int endY = start.getY() + dy * steps;
+        return regionLocks.lock(Math.min(start.getX(), endX) - spread, Math.min(start.getY(), endY) - spread,
+                Math.max(start.getX(), endX) + spread, Math.max(start.getY(), endY) + spread);
+    }
+
+    /**
+     * Returns the bitmap of the positions blocked by the obstacles of the world.
+     *
+     * @return the obstacle map
+     */
+    public ObstacleMap getObstacleMap() {
+        return obstacleMap;
+    }
+
+    /**
+     * Returns the index of the robots in the world by their position.
+     *
+     * @return the robot grid
+     */
+    public RobotGrid getRobotGrid() {
+        return robotGrid;
     }
 
     /**
@@ -261,85 +421,162 @@ public class World {
      * @param robot    the robot to update
      * @param nrSteps  the number of steps to move the robot
      * @param isBullet indicates if the update is for a bullet (true) or robot movement (false)
-     * @return an array containing the update response, which can be UpdateResponse.SUCCESS, UpdateResponse.FAILED_OBSTRUCTED,
-     * or UpdateResponse.FAILED_OUTSIDE_WORLD, and additional information if applicable
+     * @return Collision.NONE if the robot moved all the way, Collision.OUTSIDE_WORLD if it stopped at the edge of the world,
+     * or Collision.OBSTACLE or the collision with the other robot if it was obstructed; null if it was not asked to move
      */
-    public Object[] updatePosition(Robot robot, int nrSteps) { // remove isBullet from this method
+    public Collision updatePosition(Robot robot, int nrSteps) { // remove isBullet from this method
+        if (nrSteps == 0) {
+            return null;
+        }
 
         int increment = (nrSteps > 0)? 1 : -1;
-        Object[] updateResponse = null;
-
-        // move robot by 1 / -1 step until it reaches its destination or it is obstructed / out of safezone
-        for (int i=1; i<=Math.abs(nrSteps); i++) {
-            updateResponse = updatePosition_helper(robot, increment, false); 
-            if (updateResponse[0] != UpdateResponse.SUCCESS) { //obstructed or out of world.
-                return updateResponse;
-            }
+        int steps = Math.abs(nrSteps);
+        int dx = 0;
+        int dy = 0;
+        if (Direction.NORTH.equals(robot.getDirection())) {
+            dy = increment;
+        }
+        else if (Direction.EAST.equals(robot.getDirection())) {
+            dx = increment;
+        }
+        else if (Direction.SOUTH.equals(robot.getDirection())) {
+            dy = -increment;
+        }
+        else {
+            dx = -increment;
         }
 
-        return updateResponse;
+        // the robot stops before the first position that is blocked or outside the world, as if it moved one step at a time,
+        // checking where it stands and where it goes next; a blocked position counts before an outside one.
+        Position start = robot.getPosition();
+        // robots near the path cannot move while the robot does, so what is found in its way stays there.
+        long locked = lockRegions(start, dx, dy, steps);
+        try {
+            return move(robot, start, dx, dy, steps);
+        } finally {
+            regionLocks.unlock(locked);
+        }
     };
 
     /**
-     * Fires a bullet from the given robot in the current direction.
-     * The bullet will move for the specified number of steps.
-     * If the bullet hits an obstacle or another robot, it will stop.
+     * Moves a robot along a path, stopping before the first position that is blocked or outside the world.
      *
-     * @param robot    the robot that fires the bullet
-     * @param nrSteps  the number of steps the bullet will move
-     * @return an array containing the update response, which can be UpdateResponse.SUCCESS or UpdateResponse.FAILED_OBSTRUCTED,
-     * and additional information if another robot obstructs the path
-     */
-    public Object[] fireGun(Robot robot, int nrSteps) {
-        return updatePosition_helper(robot, nrSteps, true); 
+     * @param robot the robot to move
+     * @param start the position the robot starts from
+     * @param dx    the step across
+     * @param dy    the step up
+     * @param steps the number of steps to move
+     * @return the collision that stopped the robot, or Collision.NONE if it moved all the way
+     */
+    private Collision move(Robot robot, Position start, int dx, int dy, int steps) {
+        Collision blocked = SquareObstacle.blocksPath(start, dx, dy, steps, robot, this);
+        int blockedStep = SquareObstacle.blockedStep(blocked, start, dx, dy, steps, this);
+        int outsideStep = firstStepOutside(start, dx, dy, steps);
+
+        if (blockedStep >= 0 && (outsideStep < 0 || blockedStep <= outsideStep)) {
+            moveBy(robot, start, dx, dy, blockedStep - 1);
+            return blocked; // also names the otherRobot, if a robot is in the way
+        }
+        if (outsideStep >= 0) {
+            moveBy(robot, start, dx, dy, outsideStep - 1);
+            return Collision.OUTSIDE_WORLD;
+        }
+        moveBy(robot, start, dx, dy, steps);
+        return Collision.NONE;
     }
 
     /**
-     * Helper method to update the position of a robot in the world.
+     * Moves a robot a number of steps from where it started, if that is at least one step.
      *
-     * @param robot    the robot to update
-     * @param nrSteps  the number of steps to move the robot
-     * @param isBullet indicates if the update is for a bullet (true) or robot movement (false)
-     * @return an array containing the update response, which can be UpdateResponse.SUCCESS or UpdateResponse.FAILED_OBSTRUCTED,
-     * and additional information if another robot obstructs the path
-     */
-    Object[] updatePosition_helper(Robot robot, int nrSteps, Boolean isBullet) {
-        int newX = robot.getPosition().getX();
-        int newY = robot.getPosition().getY();
+     * @param robot the robot to move
+     * @param start the position the robot started from
+     * @param dx    the step across
+     * @param dy    the step up
+     * @param steps the number of steps
+     */
+    private void moveBy(Robot robot, Position start, int dx, int dy, int steps) {
+        if (steps > 0) {
+            robot.setPosition(new Position(start.getX() + dx * steps, start.getY() + dy * steps));
+        }
+    }
+
+    /**
+     * Finds the first step of a horizontal or vertical path that leaves the world.
+     *
+     * @param start the start of the path
+     * @param dx    the step across
+     * @param dy    the step up
+     * @param steps the number of steps the path takes
+     * @return the number of steps from the start to the first position outside the world, or -1 if the path stays inside
+     */
+    private int firstStepOutside(Position start, int dx, int dy, int steps) {
+        int x = start.getX() + dx;
+        int y = start.getY() + dy;
+        if (y > TOP_LEFT.getY() || y < BOTTOM_RIGHT.getY() || x < TOP_LEFT.getX() || x > BOTTOM_RIGHT.getX()) {
+            return 1;
+        }
+        // the world is a rectangle, so once the path is inside it stays inside up to the edge it is heading for.
+        int room;
+        if (dx > 0) {
+            room = BOTTOM_RIGHT.getX() - start.getX();
+        }
+        else if (dx < 0) {
+            room = start.getX() - TOP_LEFT.getX();
+        }
+        else if (dy > 0) {
+            room = TOP_LEFT.getY() - start.getY();
+        }
+        else {
+            room = start.getY() - BOTTOM_RIGHT.getY();
+        }
+        return room + 1 <= steps ? room + 1 : -1;
+    }
 
+    /**
+     * Fires a bullet from the given robot in the current direction.
+     * The bullet will move for the specified number of steps.
+     * If the bullet hits an obstacle or another robot, it will stop.
+     *
+     * @param robot    the robot that fires the bullet
+     * @param nrSteps  the number of steps the bullet will move
+     * @return Collision.OBSTACLE or the collision with the other robot if the bullet was stopped,
+     * Collision.OUTSIDE_WORLD if it left the world, or Collision.NONE otherwise
+     */
+    public Collision fireGun(Robot robot, int nrSteps) {
+        int increment = (nrSteps >= 0)? 1 : -1;
+        int steps = Math.abs(nrSteps);
+        int dx = 0;
+        int dy = 0;
         if (Direction.NORTH.equals(robot.getDirection())) {
-            newY = newY + nrSteps;
+            dy = increment;
         }
         else if (Direction.EAST.equals(robot.getDirection())) {
-            newX = newX + nrSteps;
+            dx = increment;
         }
         else if (Direction.SOUTH.equals(robot.getDirection())) {
-            newY = newY - nrSteps;
+            dy = -increment;
         }
-        else if (Direction.WEST.equals(robot.getDirection()) ) {
-            newX = newX - nrSteps;
+        else {
+            dx = -increment;
         }
 
-        Position newPosition = new Position(newX, newY);
-
-        Object[] result = SquareObstacle.blocksPath(robot.getPosition(), newPosition, robot, this);
+        Position start = robot.getPosition();
+        long locked = lockRegions(start, dx, dy, steps);
+        try {
+            Collision result = SquareObstacle.blocksPath(start, dx, dy, steps, robot, this);
 
-        if ((boolean) result[0]) { // path is blocked, either by an obstacle (result.length == 1) || by other robot (result.length == 2).
-            if (result.length == 1) {
-                return new Object[]{UpdateResponse.FAILED_OBSTRUCTED};
-            }else{
-                return new Object[]{UpdateResponse.FAILED_OBSTRUCTED, result[1]}; // also return the otherRobot
+            if (result.isBlocked()) { // path is blocked, either by an obstacle or by the otherRobot it names.
+                return result;
             }
-        }
-        else if (newPosition.isIn(this.TOP_LEFT,this.BOTTOM_RIGHT)){ 
-            if (!isBullet) {
-                robot.setPosition(newPosition);
+            else if (steps == 0 || firstStepOutside(start, dx, dy, steps) < 0) {
+                return Collision.NONE;
             }
-            return new Object[]{UpdateResponse.SUCCESS};
-        }
 
-        return new Object[]{UpdateResponse.FAILED_OUTSIDE_WORLD};
-    };
+            return Collision.OUTSIDE_WORLD;
+        } finally {
+            regionLocks.unlock(locked);
+        }
+    }
 
     /**
      * Updates the direction of a robot in the world.
@@ -474,6 +711,7 @@ public class World {
     public void addObstacle(Obstacle obstacle) {
         obstacles.add(obstacle);
         obstaclesAsPositions.add(new Position(obstacle.getBottomLeftX(), obstacle.getBottomLeftY()));
+        obstacleMap.add(obstacle);
     }
 
     /**
@@ -483,12 +721,7 @@ public class World {
      * @return the robot with the given name, or null if no robot with the given name is found.
      */
     public Robot getRobotByName (String nameOfRobot) {
-        for (String key: nameAndRobotMap.keySet()) {
-            if (nameOfRobot.equals(key)) {
-                return nameAndRobotMap.get(key);
-            }
-        }
-        return null;
+        return nameAndRobotMap.get(nameOfRobot);
     }
 
 }
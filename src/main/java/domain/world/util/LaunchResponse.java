@@ -0,0 +1,11 @@
+package domain.world.util;
+
+/**
+* Enum that indicates response for launchRobot request
+*/
+public enum LaunchResponse {
+    SUCCESS, //robot was added to the world
+    FAILED_NO_SPACE, //world already holds the maximum number of robots
+    FAILED_NAME_TAKEN, //a robot with the same name is already in the world
+    FAILED_OBSTRUCTED, //starting position is blocked by an obstacle or another robot
+}
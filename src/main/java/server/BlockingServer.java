@@ -0,0 +1,85 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import domain.ClientHandler;
+import domain.WorldRegistry;
+import domain.configuration.ConfigurationManager;
+
+/**
+ * A Server that serves every client on its own thread using blocking sockets.
+ * Clients are only given a thread once the connection manager has admitted them.
+ */
+public class BlockingServer implements Server {
+    private final int port;
+    private final WorldRegistry worldRegistry;
+    private final ConnectionThreads connectionThreads;
+    private final ConnectionManager connectionManager;
+    private ServerSocket serverSocket;
+
+    /**
+     * Constructs a new BlockingServer.
+     *
+     * @param port        the port to listen on
+     * @param worldRegistry the worlds clients will play in
+     * @param threadMode  "platform" or "virtual", the kind of thread each client runs on
+     * @param connectionManager decides which connections are served
+     */
+    public BlockingServer(int port, WorldRegistry worldRegistry, String threadMode, ConnectionManager connectionManager) {
+        this.port = port;
+        this.worldRegistry = worldRegistry;
+        this.connectionThreads = new ConnectionThreads(threadMode);
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        connectionManager.start();
+        Thread acceptor = new Thread(this::acceptClients, "acceptor");
+        acceptor.start();
+        System.out.println("Server listening on port " + port + " (blocking, " + ConfigurationManager.getThreads() + " threads)");
+    }
+
+    /**
+     * Accepts clients until the server socket is closed, starting a connection thread for each one.
+     */
+    private void acceptClients() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                InetAddress address = socket.getInetAddress();
+                if (!connectionManager.admit(address)) {
+                    socket.close();
+                    continue;
+                }
+                try {
+                    SocketTransport transport = new SocketTransport(socket, connectionThreads);
+                    ClientHandler clientHandler = new ClientHandler(socket, transport, worldRegistry, connectionManager);
+                    connectionManager.track(clientHandler, address);
+                    connectionThreads.start(clientHandler);
+                } catch (IOException e) {
+                    connectionManager.cancel(address);
+                    socket.close();
+                }
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        connectionManager.shutdown();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
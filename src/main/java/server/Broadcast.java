@@ -0,0 +1,173 @@
+package server;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import domain.response.Response;
+import json.JsonHandler;
+
+/**
+ * A response sent to many clients at once.
+ * The response is serialized once, and encoded once for every wire format in use among the recipients;
+ * every recipient that uses the same format is handed the same bytes.
+ *
+ * A broadcast about a robot's state, or about a robot appearing or disappearing, says so,
+ * so that clients that receive state updates as deltas can keep track of what they have been sent.
+ */
+public class Broadcast {
+    private final Response response;
+    private final String coalesceKey;
+    private Lane lane = Lane.COMBAT;
+    private String robotName;
+    private String robotKind;
+    private HashMap<String, Object> state;
+    private boolean presenceChange = false;
+    private volatile String json;
+    private final AtomicReferenceArray<byte[]> encoded = new AtomicReferenceArray<>(MessageEncoder.FORMATS);
+
+    /**
+     * Constructs a new Broadcast of a combat event, such as a shot.
+     *
+     * @param response    the response to send
+     * @param coalesceKey the name of the robot the response is about, or null if it may not replace older messages
+     */
+    public Broadcast(Response response, String coalesceKey) {
+        this.response = response;
+        this.coalesceKey = coalesceKey;
+    }
+
+    /**
+     * Creates a broadcast of the new state of a robot.
+     *
+     * @param response  the response to send to clients that receive full states
+     * @param robotName the name of the robot
+     * @param state     a copy of the state of the robot, which must not change afterwards
+     * @return the broadcast
+     */
+    public static Broadcast ofState(Response response, String robotName, HashMap<String, Object> state) {
+        Broadcast broadcast = new Broadcast(response, robotName);
+        broadcast.lane = Lane.STATE;
+        broadcast.robotName = robotName;
+        broadcast.state = state;
+        return broadcast;
+    }
+
+    /**
+     * Creates a broadcast of a robot entering the world.
+     *
+     * @param response  the response to send
+     * @param robotName the name of the robot
+     * @param robotKind the kind of the robot
+     * @param state     a copy of the state of the robot, which must not change afterwards
+     * @return the broadcast
+     */
+    public static Broadcast ofArrival(Response response, String robotName, String robotKind, HashMap<String, Object> state) {
+        Broadcast broadcast = ofDeparture(response, robotName);
+        broadcast.robotKind = robotKind;
+        broadcast.state = state;
+        return broadcast;
+    }
+
+    /**
+     * Creates a broadcast of a robot leaving the world.
+     *
+     * @param response  the response to send
+     * @param robotName the name of the robot
+     * @return the broadcast
+     */
+    public static Broadcast ofDeparture(Response response, String robotName) {
+        Broadcast broadcast = new Broadcast(response, null);
+        broadcast.lane = Lane.STATE;
+        broadcast.robotName = robotName;
+        broadcast.presenceChange = true;
+        return broadcast;
+    }
+
+    public Response getResponse() {
+        return response;
+    }
+
+    public String getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    /**
+     * Returns the lane the broadcast is queued in. State and presence changes of a robot share the state lane,
+     * so a client sees them in order.
+     *
+     * @return the lane
+     */
+    public Lane getLane() {
+        return lane;
+    }
+
+    /**
+     * Returns the name of the robot whose state or presence the broadcast is about.
+     *
+     * @return the name of the robot, or null if the broadcast is about neither
+     */
+    public String getRobotName() {
+        return robotName;
+    }
+
+    /**
+     * Returns the kind of a robot entering the world.
+     *
+     * @return the kind of the robot, or null if this is not a broadcast of a robot entering the world
+     */
+    public String getRobotKind() {
+        return robotKind;
+    }
+
+    /**
+     * Returns the state carried by a broadcast of a robot's state, or of a robot entering the world.
+     *
+     * @return the state, or null if the broadcast carries none
+     */
+    public HashMap<String, Object> getState() {
+        return state;
+    }
+
+    /**
+     * Checks if the broadcast is about a robot entering or leaving the world.
+     *
+     * @return true if the robot entered or left the world
+     */
+    public boolean isPresenceChange() {
+        return presenceChange;
+    }
+
+    /**
+     * Returns the response as JSON, serializing it on the first call only.
+     *
+     * @return the JSON text of the response
+     */
+    public String getJson() {
+        String serialized = json;
+        if (serialized == null) {
+            serialized = JsonHandler.serializeResponse(response);
+            json = serialized;
+        }
+        return serialized;
+    }
+
+    /**
+     * Returns the bytes already encoded for a wire format.
+     *
+     * @param format the wire format, as returned by MessageEncoder.getFormat
+     * @return the encoded bytes, or null if no recipient with this format has been sent the broadcast yet
+     */
+    byte[] getEncoded(int format) {
+        return encoded.get(format);
+    }
+
+    /**
+     * Keeps the bytes encoded for a wire format, so other recipients with the same format can reuse them.
+     *
+     * @param format the wire format, as returned by MessageEncoder.getFormat
+     * @param bytes  the encoded bytes
+     */
+    void setEncoded(int format, byte[] bytes) {
+        encoded.compareAndSet(format, null, bytes);
+    }
+}
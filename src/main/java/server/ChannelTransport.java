@@ -0,0 +1,193 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import domain.ClientHandler;
+
+/**
+ * A Transport backed by a non-blocking SocketChannel that is owned by an EventLoop.
+ * Messages may be sent from any thread; they are queued and written by the owning event loop,
+ * so a thread that broadcasts to a slow client is never blocked by it.
+ *
+ * The event loop flushes a transport at most once per pass, and a flush hands every queued message
+ * to the socket in one gathering write, so a burst of messages costs one system call instead of one each.
+ */
+public class ChannelTransport implements Transport {
+    private final SocketChannel channel;
+    private final EventLoop eventLoop;
+    private final OutboundQueue outboundQueue;
+    // the messages being written: writing[writingIndex] up to writing[writingCount - 1] still have bytes left.
+    private ByteBuffer[] writing = new ByteBuffer[MAX_GATHER];
+    private int writingIndex = 0;
+    private int writingCount = 0;
+    private final List<byte[]> batch = new ArrayList<>(MAX_GATHER);
+    private SelectionKey key;
+    private ClientHandler clientHandler;
+    private volatile boolean closing = false;
+
+    // the most messages handed to a single gathering write.
+    private static final int MAX_GATHER = 128;
+
+    /**
+     * Constructs a new ChannelTransport.
+     *
+     * @param channel   the client channel, already in non-blocking mode
+     * @param eventLoop the event loop that owns the channel
+     */
+    public ChannelTransport(SocketChannel channel, EventLoop eventLoop) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.outboundQueue = OutboundQueue.fromConfiguration();
+    }
+
+    /**
+     * Attaches the selection key and client handler once the channel is registered with the event loop.
+     *
+     * @param key           the selection key of the channel
+     * @param clientHandler the client handler that processes requests from this channel
+     */
+    void attach(SelectionKey key, ClientHandler clientHandler) {
+        this.key = key;
+        this.clientHandler = clientHandler;
+    }
+
+    /**
+     * Returns the client handler that processes requests from this channel.
+     *
+     * @return the client handler
+     */
+    ClientHandler getClientHandler() {
+        return clientHandler;
+    }
+
+    @Override
+    public void send(byte[] message, Lane lane, String coalesceKey) {
+        if (!outboundQueue.offer(message, lane, coalesceKey)) {
+            ServerMetrics.OVERFLOW_DISCONNECTS.increment();
+            abort();
+            return;
+        }
+        eventLoop.requestFlush(this);
+    }
+
+    @Override
+    public void sendDelta(byte[] message, Lane lane, String robotName) {
+        if (!outboundQueue.offerDelta(message, lane, robotName)) {
+            ServerMetrics.OVERFLOW_DISCONNECTS.increment();
+            abort();
+            return;
+        }
+        eventLoop.requestFlush(this);
+    }
+
+    /**
+     * Reads whatever the client has sent and hands every complete request in it to the client handler.
+     * Must only be called from the owning event loop.
+     *
+     * @throws IOException if the client disconnected, the read failed or the client sent an invalid frame
+     */
+    void read() throws IOException {
+        clientHandler.readRequests(channel);
+    }
+
+    /**
+     * Writes queued messages until the queue is empty or the socket buffer is full.
+     * If the socket buffer fills up, the event loop is asked to call again once the channel is writable.
+     * Must only be called from the owning event loop.
+     *
+     * @throws IOException if the write failed
+     */
+    void flush() throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        while (true) {
+            if (writingIndex == writingCount && !takeBatch()) {
+                break;
+            }
+            channel.write(writing, writingIndex, writingCount - writingIndex);
+            ServerMetrics.SOCKET_WRITES.increment();
+            while (writingIndex < writingCount && !writing[writingIndex].hasRemaining()) {
+                writing[writingIndex++] = null;
+            }
+            if (writingIndex < writingCount) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        if (closing) {
+            closeNow();
+            clientHandler.disconnect();
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Takes the next queued messages off the outbound queue to be written together.
+     *
+     * @return false if the queue is empty, true otherwise
+     */
+    private boolean takeBatch() {
+        batch.clear();
+        int count = outboundQueue.drainTo(batch, MAX_GATHER);
+        for (int i = 0; i < count; i++) {
+            writing[i] = ByteBuffer.wrap(batch.get(i));
+        }
+        writingIndex = 0;
+        writingCount = count;
+        return count > 0;
+    }
+
+    /**
+     * Closes the connection once every queued message has been written.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        eventLoop.requestFlush(this);
+    }
+
+    /**
+     * Closes the connection on the event loop, dropping any queued messages, and disconnects the client.
+     */
+    @Override
+    public void abort() {
+        eventLoop.execute(() -> {
+            if (channel.isOpen()) {
+                closeNow();
+                clientHandler.disconnect();
+            }
+        });
+    }
+
+    /**
+     * Closes the connection straight away, dropping any queued messages.
+     */
+    void closeNow() {
+        outboundQueue.close();
+        try {
+            if (key != null) {
+                key.cancel();
+            }
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public OutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+}
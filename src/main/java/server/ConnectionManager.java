@@ -0,0 +1,253 @@
+package server;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import domain.ClientHandler;
+
+/**
+ * Decides which connections the server accepts and closes connections that have gone idle or dead.
+ *
+ * A connection is admitted at accept time, before a transport or client handler is created for it,
+ * so turning a client away costs no more than closing its socket. Admission is refused when accepting
+ * the connection would exceed the maximum number of connections, of connections that have not launched
+ * a robot yet, or of connections from the same address. A limit of 0 means no limit.
+ *
+ * Connections that send no request for the idle timeout are closed. A timeout of 0 turns eviction off.
+ * An evicted client is told why before the connection is closed; if it does not take that message
+ * within EVICTION_GRACE_SECONDS, the connection is closed without it.
+ *
+ * Clients that asked for heartbeats are sent a ping once they have been silent for the heartbeat interval.
+ * A client that stays silent for the given number of intervals is taken to be dead: its connection is closed
+ * at once, which frees its robot's place in the world and stops broadcasts to it.
+ */
+public class ConnectionManager {
+
+    /**
+     * What is known about an admitted connection.
+     */
+    private static class Connection {
+        private final InetAddress address;
+        // set once the connection stops counting as unlaunched, either because it launched a robot or because it was released.
+        private final AtomicBoolean launchedOrReleased = new AtomicBoolean(false);
+        // when the connection was evicted, as System.nanoTime, or 0 if it has not been.
+        private volatile long evictedAt = 0;
+
+        private Connection(InetAddress address) {
+            this.address = address;
+        }
+    }
+
+    private static final int EVICTION_GRACE_SECONDS = 5;
+
+    private final int maxConnections;
+    private final int maxUnlaunched;
+    private final int maxPerAddress;
+    private final int idleTimeoutSeconds;
+    private final int heartbeatIntervalSeconds;
+    private final int heartbeatMisses;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger unlaunched = new AtomicInteger();
+    private final Map<InetAddress, Integer> connectionsPerAddress = new ConcurrentHashMap<>();
+    private final Map<ClientHandler, Connection> tracked = new ConcurrentHashMap<>();
+    private ScheduledExecutorService evictor;
+
+    /**
+     * Constructs a new ConnectionManager.
+     *
+     * @param maxConnections      the maximum number of connections, or 0 for no limit
+     * @param maxUnlaunched       the maximum number of connections without a robot, or 0 for no limit
+     * @param maxPerAddress       the maximum number of connections from one address, or 0 for no limit
+     * @param idleTimeoutSeconds  the seconds without a request after which a connection is closed, or 0 to never close
+     * @param heartbeatIntervalSeconds  the seconds of silence after which a client that asked for heartbeats is pinged,
+     *                                  or 0 to never ping
+     * @param heartbeatMisses     the number of intervals a pinged client may stay silent before it is taken to be dead
+     */
+    public ConnectionManager(int maxConnections, int maxUnlaunched, int maxPerAddress, int idleTimeoutSeconds,
+                             int heartbeatIntervalSeconds, int heartbeatMisses) {
+        this.maxConnections = maxConnections;
+        this.maxUnlaunched = maxUnlaunched;
+        this.maxPerAddress = maxPerAddress;
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        this.heartbeatIntervalSeconds = heartbeatIntervalSeconds;
+        this.heartbeatMisses = heartbeatMisses;
+    }
+
+    /**
+     * Starts checking connections once a second on a daemon thread, if an idle timeout or heartbeat interval is configured.
+     */
+    public void start() {
+        if (idleTimeoutSeconds <= 0 && heartbeatIntervalSeconds <= 0) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "idle-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleAtFixedRate(this::checkConnections, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops evicting idle connections.
+     */
+    public void shutdown() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reserves a slot for a newly accepted connection.
+     * Every admitted connection must later be passed to track, or to cancel if no client handler was created for it.
+     *
+     * @param address the address the connection comes from
+     * @return true if the connection may be served, false if it must be closed
+     */
+    public boolean admit(InetAddress address) {
+        if (exceeds(connections.incrementAndGet(), maxConnections)) {
+            connections.decrementAndGet();
+            return reject();
+        }
+        if (exceeds(unlaunched.incrementAndGet(), maxUnlaunched)) {
+            unlaunched.decrementAndGet();
+            connections.decrementAndGet();
+            return reject();
+        }
+        if (exceeds(connectionsPerAddress.merge(address, 1, Integer::sum), maxPerAddress)) {
+            releaseAddress(address);
+            unlaunched.decrementAndGet();
+            connections.decrementAndGet();
+            return reject();
+        }
+        return true;
+    }
+
+    /**
+     * Gives back the slot of an admitted connection that was closed before a client handler was created for it.
+     *
+     * @param address the address the connection comes from
+     */
+    public void cancel(InetAddress address) {
+        releaseAddress(address);
+        unlaunched.decrementAndGet();
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Starts tracking the client handler of an admitted connection.
+     *
+     * @param clientHandler the client handler of the connection
+     * @param address       the address the connection comes from
+     */
+    public void track(ClientHandler clientHandler, InetAddress address) {
+        tracked.put(clientHandler, new Connection(address));
+    }
+
+    /**
+     * Records that a connection launched a robot, so it no longer counts against the limit on unlaunched connections.
+     * Calling this more than once, or after the connection was released, has no effect.
+     *
+     * @param clientHandler the client handler of the connection
+     */
+    public void launched(ClientHandler clientHandler) {
+        Connection connection = tracked.get(clientHandler);
+        if (connection != null) {
+            stopCountingAsUnlaunched(connection);
+        }
+    }
+
+    /**
+     * Gives back the slot of a connection that has been closed. Calling this more than once has no effect.
+     *
+     * @param clientHandler the client handler of the connection
+     */
+    public void release(ClientHandler clientHandler) {
+        Connection connection = tracked.remove(clientHandler);
+        if (connection == null) {
+            return;
+        }
+        releaseAddress(connection.address);
+        stopCountingAsUnlaunched(connection);
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Takes a connection off the count of unlaunched connections, unless launched or release already did.
+     * The flag is flipped atomically, so a launch racing with a release cannot take it off twice.
+     *
+     * @param connection the connection
+     */
+    private void stopCountingAsUnlaunched(Connection connection) {
+        if (connection.launchedOrReleased.compareAndSet(false, true)) {
+            unlaunched.decrementAndGet();
+        }
+    }
+
+    /**
+     * Pings clients that have gone silent, closes the connections of dead clients
+     * and evicts connections that have not sent a request for the idle timeout.
+     */
+    private void checkConnections() {
+        long now = System.nanoTime();
+        long idleSince = now - TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        long interval = TimeUnit.SECONDS.toNanos(heartbeatIntervalSeconds);
+        for (Map.Entry<ClientHandler, Connection> entry : tracked.entrySet()) {
+            ClientHandler clientHandler = entry.getKey();
+            Connection connection = entry.getValue();
+            if (heartbeatIntervalSeconds > 0 && clientHandler.usesHeartbeat()) {
+                long silentFor = now - clientHandler.getLastHeard();
+                if (silentFor > interval * heartbeatMisses) {
+                    ServerMetrics.HEARTBEAT_TIMEOUTS.increment();
+                    clientHandler.getTransport().abort();
+                    continue;
+                }
+                if (silentFor >= interval && now - clientHandler.getLastPingSent() >= interval) {
+                    clientHandler.sendPing();
+                }
+            }
+            if (idleTimeoutSeconds <= 0) {
+                continue;
+            }
+            if (connection.evictedAt == 0) {
+                if (clientHandler.getLastActivity() - idleSince < 0) {
+                    connection.evictedAt = now;
+                    ServerMetrics.CONNECTIONS_EVICTED.increment();
+                    clientHandler.evict("Idle for more than " + idleTimeoutSeconds + " seconds");
+                }
+            }
+            else if (now - connection.evictedAt > TimeUnit.SECONDS.toNanos(EVICTION_GRACE_SECONDS)) {
+                clientHandler.getTransport().abort();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of connections currently admitted.
+     *
+     * @return the number of connections
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    private boolean exceeds(int count, int limit) {
+        return limit > 0 && count > limit;
+    }
+
+    private boolean reject() {
+        ServerMetrics.CONNECTIONS_REJECTED.increment();
+        return false;
+    }
+
+    private void releaseAddress(InetAddress address) {
+        connectionsPerAddress.computeIfPresent(address, (key, count) -> count == 1 ? null : count - 1);
+    }
+}
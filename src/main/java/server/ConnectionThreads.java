@@ -0,0 +1,58 @@
+package server;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads that serve client connections in the blocking engine.
+ * Connections can run on platform threads or, on Java 21 and later, on virtual threads.
+ */
+public class ConnectionThreads {
+    private final ThreadFactory threadFactory;
+
+    /**
+     * Constructs a new ConnectionThreads for the given thread mode.
+     *
+     * @param mode "platform" or "virtual"
+     * @throws IllegalArgumentException if the mode is not supported
+     * @throws IllegalStateException if virtual threads are requested on a Java version without them
+     */
+    public ConnectionThreads(String mode) {
+        switch (mode) {
+            case "platform":
+                this.threadFactory = Thread::new;
+                break;
+            case "virtual":
+                this.threadFactory = virtualThreadFactory();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported thread mode: " + mode);
+        }
+    }
+
+    /**
+     * Starts a new thread that runs the given task.
+     *
+     * @param task the task to run
+     * @return the started thread
+     */
+    public Thread start(Runnable task) {
+        Thread thread = threadFactory.newThread(task);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Looks up the virtual thread factory reflectively, so the project still builds for Java 11.
+     *
+     * @return a factory that creates virtual threads
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later", e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import domain.ClientHandler;
+import domain.WorldRegistry;
+
+/**
+ * A single thread that serves many client channels through one Selector.
+ * Reads requests, dispatches them to the ClientHandler of the channel and writes queued responses.
+ */
+public class EventLoop implements Runnable {
+    private final Selector selector;
+    private final WorldRegistry worldRegistry;
+    private final ConnectionManager connectionManager;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<ChannelTransport> transportsToFlush = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * Constructs a new EventLoop.
+     *
+     * @param worldRegistry the worlds clients of this event loop play in
+     * @param connectionManager the connection manager that admits the clients of this event loop
+     * @throws IOException if the selector cannot be opened
+     */
+    public EventLoop(WorldRegistry worldRegistry, ConnectionManager connectionManager) throws IOException {
+        this.selector = Selector.open();
+        this.worldRegistry = worldRegistry;
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * Starts the event loop on a new thread.
+     *
+     * @param name the name of the thread
+     */
+    public void start(String name) {
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    /**
+     * Hands a newly accepted channel over to this event loop.
+     * May be called from any thread.
+     *
+     * @param channel the accepted client channel, already admitted by the connection manager
+     * @param address the address the channel comes from
+     */
+    public void register(SocketChannel channel, InetAddress address) {
+        tasks.add(() -> {
+            try {
+                channel.configureBlocking(false);
+                ChannelTransport transport = new ChannelTransport(channel, this);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, transport);
+                ClientHandler clientHandler = new ClientHandler(transport, worldRegistry, connectionManager);
+                connectionManager.track(clientHandler, address);
+                transport.attach(key, clientHandler);
+            } catch (IOException e) {
+                e.printStackTrace();
+                connectionManager.cancel(address);
+                try {
+                    channel.close();
+                } catch (IOException closeException) {
+                    closeException.printStackTrace();
+                }
+            }
+        });
+        selector.wakeup();
+    }
+
+    /**
+     * Runs a task on the event loop thread.
+     * May be called from any thread.
+     *
+     * @param task the task to run
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the event loop to write the queued messages of a transport.
+     * May be called from any thread; the write itself always happens on the event loop.
+     *
+     * @param transport the transport that has queued messages
+     */
+    void requestFlush(ChannelTransport transport) {
+        if (transportsToFlush.add(transport) && Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                runTasks();
+                handleSelectedKeys();
+                flushTransports();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        closeSelector();
+    }
+
+    /**
+     * Runs the tasks that other threads have handed to this event loop.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Reads from and writes to every channel the selector reported as ready.
+     */
+    private void handleSelectedKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            ChannelTransport transport = (ChannelTransport) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    transport.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    transport.flush();
+                }
+            } catch (IOException e) {
+                transport.closeNow();
+                transport.getClientHandler().disconnect();
+            }
+        }
+    }
+
+    /**
+     * Writes the queued messages of every transport that asked for a flush since the last pass.
+     */
+    private void flushTransports() {
+        Iterator<ChannelTransport> iterator = transportsToFlush.iterator();
+        while (iterator.hasNext()) {
+            ChannelTransport transport = iterator.next();
+            iterator.remove();
+            try {
+                transport.flush();
+            } catch (IOException e) {
+                transport.closeNow();
+                transport.getClientHandler().disconnect();
+            }
+        }
+    }
+
+    /**
+     * Stops the event loop and closes every channel it owns.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Closes the selector and every channel registered with it.
+     */
+    private void closeSelector() {
+        for (SelectionKey key : selector.keys()) {
+            ((ChannelTransport) key.attachment()).closeNow();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
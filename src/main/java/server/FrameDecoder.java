@@ -0,0 +1,199 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits the bytes received from a client into separate requests (frames).
+ * TCP may deliver several requests in one read or one request over several reads,
+ * so bytes are collected in a per-connection buffer that is reused for the lifetime of the connection.
+ *
+ * Two framings are supported:
+ *   "newline" - every request ends with a line feed (an optional carriage return before it is dropped)
+ *   "length"  - every request is preceded by its length as a 4-byte big-endian integer
+ */
+public class FrameDecoder {
+
+    /**
+     * Receives the frames found by the decoder.
+     * The bytes are only valid for the duration of the call.
+     */
+    public interface FrameListener {
+        void onFrame(byte[] bytes, int offset, int length);
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private boolean lengthPrefixed;
+    private final int maxFrameSize;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    // wraps buffer for channel reads; rebuilt only when buffer grows.
+    private ByteBuffer channelBuffer = ByteBuffer.wrap(buffer);
+    private int start = 0;
+    private int end = 0;
+    // how far the current line has been searched for a line feed.
+    private int scanned = 0;
+
+    /**
+     * Constructs a new FrameDecoder.
+     *
+     * @param framing       "newline" or "length"
+     * @param maxFrameSize  the largest frame a client may send, in bytes
+     * @throws IllegalArgumentException if the framing is not supported
+     */
+    public FrameDecoder(String framing, int maxFrameSize) {
+        setFraming(framing);
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Changes how frames are delimited, e.g. after the client negotiated another protocol.
+     * When called from a FrameListener, the change applies from the next frame in the buffer onwards.
+     *
+     * @param framing "newline" or "length"
+     * @throws IllegalArgumentException if the framing is not supported
+     */
+    public void setFraming(String framing) {
+        switch (framing) {
+            case "newline":
+                this.lengthPrefixed = false;
+                break;
+            case "length":
+                this.lengthPrefixed = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported framing: " + framing);
+        }
+    }
+
+    /**
+     * Reads whatever is available from a blocking stream into the buffer.
+     *
+     * @param inputStream the stream to read from
+     * @return the number of bytes read, or -1 if the stream has ended
+     * @throws IOException if the read fails
+     */
+    public int readFrom(InputStream inputStream) throws IOException {
+        makeRoom();
+        int bytesRead = inputStream.read(buffer, end, buffer.length - end);
+        if (bytesRead > 0) {
+            end += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Reads whatever is available from a channel into the buffer.
+     *
+     * @param channel the channel to read from
+     * @return the number of bytes read, or -1 if the channel has reached end-of-stream
+     * @throws IOException if the read fails
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        makeRoom();
+        channelBuffer.limit(buffer.length).position(end);
+        int bytesRead = channel.read(channelBuffer);
+        if (bytesRead > 0) {
+            end += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Passes every complete frame in the buffer to the listener, in the order they were received.
+     * Bytes of an incomplete frame stay in the buffer until the rest arrives.
+     *
+     * @param listener the listener to pass frames to
+     * @throws IOException if a frame is larger than the maximum frame size
+     */
+    public void decode(FrameListener listener) throws IOException {
+        boolean foundFrame = true;
+        while (foundFrame) {
+            foundFrame = lengthPrefixed ? nextLengthPrefixed(listener) : nextNewlineDelimited(listener);
+        }
+    }
+
+    /**
+     * Passes the next frame that ends with a line feed to the listener. Empty lines are skipped.
+     *
+     * @param listener the listener to pass the frame to
+     * @return true if a line was found, false if the buffer holds no complete line
+     * @throws IOException if a line is longer than the maximum frame size
+     */
+    private boolean nextNewlineDelimited(FrameListener listener) throws IOException {
+        scanned = Math.max(scanned, start);
+        while (scanned < end) {
+            if (buffer[scanned] == '\n') {
+                int length = scanned - start;
+                if (length > 0 && buffer[scanned - 1] == '\r') {
+                    length--;
+                }
+                int frameStart = start;
+                start = scanned + 1;
+                scanned = start;
+                if (length > 0) {
+                    listener.onFrame(buffer, frameStart, length);
+                }
+                return true;
+            }
+            scanned++;
+        }
+        if (end - start > maxFrameSize) {
+            throw new IOException("Frame larger than " + maxFrameSize + " bytes");
+        }
+        return false;
+    }
+
+    /**
+     * Passes the next frame that is preceded by its length to the listener.
+     *
+     * @param listener the listener to pass the frame to
+     * @return true if a frame was found, false if the buffer holds no complete frame
+     * @throws IOException if a frame announces a length that is negative or larger than the maximum frame size
+     */
+    private boolean nextLengthPrefixed(FrameListener listener) throws IOException {
+        if (end - start < 4) {
+            return false;
+        }
+        int length = ((buffer[start] & 0xff) << 24) | ((buffer[start + 1] & 0xff) << 16)
+                | ((buffer[start + 2] & 0xff) << 8) | (buffer[start + 3] & 0xff);
+        if (length < 0 || length > maxFrameSize) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        if (end - start - 4 < length) {
+            return false;
+        }
+        int frameStart = start + 4;
+        start = frameStart + length;
+        listener.onFrame(buffer, frameStart, length);
+        return true;
+    }
+
+    /**
+     * Makes sure there is free space at the end of the buffer,
+     * first by moving an incomplete frame to the front and only then by growing the buffer.
+     */
+    private void makeRoom() {
+        if (start == end) {
+            start = 0;
+            end = 0;
+            scanned = 0;
+        }
+        if (end < buffer.length) {
+            return;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            scanned -= start;
+            start = 0;
+            return;
+        }
+        byte[] larger = new byte[buffer.length * 2];
+        System.arraycopy(buffer, 0, larger, 0, end);
+        buffer = larger;
+        channelBuffer = ByteBuffer.wrap(buffer);
+    }
+}
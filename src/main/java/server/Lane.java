@@ -0,0 +1,14 @@
+package server;
+
+/**
+ * The kinds of outbound traffic, in the order they are written to a client.
+ * Every lane of an OutboundQueue has its own capacity, so a burst in one lane cannot hold up or crowd out another.
+ */
+public enum Lane {
+    /** Responses to the client's own requests, snapshots sent in answer to them, and heartbeats. */
+    RESPONSE,
+    /** Shots fired, and hits taken by the client's robot. */
+    COMBAT,
+    /** The state of other robots, and robots entering or leaving the world. */
+    STATE
+}
@@ -0,0 +1,251 @@
+package server;
+
+import java.util.zip.Deflater;
+
+import binary.BinaryHandler;
+import domain.response.Response;
+import json.JsonHandler;
+
+/**
+ * Turns the messages for one client into the bytes written to its socket, in the format the client negotiated.
+ *
+ * By default every message is a line of JSON text. A client that negotiates another protocol while connecting
+ * receives every message, starting with the connect response, in a frame of the form
+ *   int32 length (of everything after it) | byte flags | payload
+ * where flag FLAG_BINARY marks a payload in the binary format of BinaryHandler; without it the payload is JSON text.
+ * A client that negotiated compression also receives payloads of at least the compression threshold deflated
+ * (zlib format, one stream per message), marked with flag FLAG_DEFLATED.
+ *
+ * Heartbeats are the lines "ping" and "pong", or frames without payload flagged FLAG_PING or FLAG_PONG.
+ * They are prepared once, so sending one costs no encoding at all.
+ */
+public class MessageEncoder {
+    public static final int FLAG_BINARY = 1;
+    public static final int FLAG_DEFLATED = 2;
+    public static final int FLAG_PING = 4;
+    public static final int FLAG_PONG = 8;
+
+    // the number of distinct wire formats, see getFormat.
+    static final int FORMATS = 8;
+
+    private static final byte[] PING_LINE = ("ping" + System.lineSeparator()).getBytes();
+    private static final byte[] PONG_LINE = ("pong" + System.lineSeparator()).getBytes();
+    private static final byte[] PING_FRAME = {0, 0, 0, 1, FLAG_PING};
+    private static final byte[] PONG_FRAME = {0, 0, 0, 1, FLAG_PONG};
+
+    private volatile boolean binary = false;
+    private volatile boolean framed = false;
+
+    // messages for one client may be encoded by several threads at once, so the deflater is guarded by this encoder.
+    private Deflater deflater;
+    private byte[] deflateBuffer;
+    private int compressionThreshold;
+
+    /**
+     * Switches to binary payloads in length-prefixed frames.
+     */
+    public void useBinary() {
+        binary = true;
+        framed = true;
+    }
+
+    /**
+     * Switches to length-prefixed frames whose payloads are deflated once they reach the threshold.
+     * The deflater is created once and reused for every message to this client.
+     *
+     * @param threshold the smallest payload, in bytes, that is compressed
+     */
+    public synchronized void useDeflate(int threshold) {
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            deflateBuffer = new byte[1024];
+        }
+        compressionThreshold = threshold;
+        framed = true;
+    }
+
+    /**
+     * Releases the native memory held by the deflater. Messages encoded afterwards are not compressed.
+     */
+    public synchronized void close() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+            deflateBuffer = null;
+        }
+    }
+
+    /**
+     * Checks if the client negotiated the binary protocol.
+     *
+     * @return true if messages are encoded in binary where possible
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Returns the wire format of this client: whether it uses binary payloads, frames and compression.
+     * Clients with the same format are sent identical bytes for the same response.
+     *
+     * @return a number below FORMATS identifying the format
+     */
+    public synchronized int getFormat() {
+        return (binary ? 1 : 0) | (framed ? 2 : 0) | (deflater != null ? 4 : 0);
+    }
+
+    /**
+     * Encodes a broadcast, reusing the bytes if another recipient with the same format has already encoded it.
+     *
+     * @param broadcast the broadcast to encode
+     * @return the bytes to write to the socket
+     */
+    public byte[] encode(Broadcast broadcast) {
+        int format = getFormat();
+        byte[] bytes = broadcast.getEncoded(format);
+        if (bytes != null) {
+            return bytes;
+        }
+        if (binary) {
+            byte[] payload = BinaryHandler.serializeResponse(broadcast.getResponse());
+            if (payload != null) {
+                bytes = frame(FLAG_BINARY, payload);
+            }
+        }
+        if (bytes == null) {
+            bytes = encode(broadcast.getJson());
+        }
+        broadcast.setEncoded(format, bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns a heartbeat asking the client to answer with a pong.
+     * The bytes are shared and must not be changed.
+     *
+     * @return the bytes to write to the socket
+     */
+    public byte[] ping() {
+        return framed ? PING_FRAME : PING_LINE;
+    }
+
+    /**
+     * Returns a heartbeat answering a ping from the client.
+     * The bytes are shared and must not be changed.
+     *
+     * @return the bytes to write to the socket
+     */
+    public byte[] pong() {
+        return framed ? PONG_FRAME : PONG_LINE;
+    }
+
+    /**
+     * Encodes a response. In binary mode, responses the binary format has no compact form for are sent as JSON.
+     *
+     * @param response the response to encode
+     * @return the bytes to write to the socket
+     */
+    public byte[] encode(Response response) {
+        if (binary) {
+            byte[] payload = BinaryHandler.serializeResponse(response);
+            if (payload != null) {
+                return frame(FLAG_BINARY, payload);
+            }
+        }
+        return encode(JsonHandler.serializeResponse(response));
+    }
+
+    /**
+     * Encodes a JSON message.
+     *
+     * @param json the JSON text of the message
+     * @return the bytes to write to the socket
+     */
+    public byte[] encode(String json) {
+        if (!framed) {
+            return (json + System.lineSeparator()).getBytes();
+        }
+        return frame(0, json.getBytes());
+    }
+
+    /**
+     * Puts a payload in a length-prefixed frame.
+     *
+     * @param flags   the flags describing the payload
+     * @param payload the payload
+     * @return the frame
+     */
+    private byte[] frame(int flags, byte[] payload) {
+        return frame(flags, payload, payload.length);
+    }
+
+    /**
+     * Puts the first bytes of a payload in a length-prefixed frame, deflating them if they reach the threshold
+     * and deflating makes them smaller.
+     *
+     * @param flags   the flags describing the payload
+     * @param payload the buffer holding the payload
+     * @param size    the size of the payload
+     * @return the frame
+     */
+    private synchronized byte[] frame(int flags, byte[] payload, int size) {
+        if (deflater != null && size >= compressionThreshold) {
+            long startTime = System.nanoTime();
+            int deflatedSize = deflate(payload, size);
+            ServerMetrics.COMPRESSION_NANOS.add(System.nanoTime() - startTime);
+            if (deflatedSize < size) {
+                ServerMetrics.MESSAGES_COMPRESSED.increment();
+                ServerMetrics.BYTES_BEFORE_COMPRESSION.add(size);
+                ServerMetrics.BYTES_AFTER_COMPRESSION.add(deflatedSize);
+                return writeFrame(flags | FLAG_DEFLATED, deflateBuffer, deflatedSize);
+            }
+        }
+        return writeFrame(flags, payload, size);
+    }
+
+    /**
+     * Deflates a payload into the reused deflate buffer, growing the buffer if needed.
+     *
+     * @param payload the buffer holding the payload
+     * @param size    the size of the payload
+     * @return the size of the deflated payload, or the size of the payload if deflating does not make it smaller
+     */
+    private int deflate(byte[] payload, int size) {
+        deflater.reset();
+        deflater.setInput(payload, 0, size);
+        deflater.finish();
+        int deflatedSize = 0;
+        while (!deflater.finished()) {
+            if (deflatedSize >= size) {
+                return size;
+            }
+            if (deflatedSize == deflateBuffer.length) {
+                byte[] larger = new byte[deflateBuffer.length * 2];
+                System.arraycopy(deflateBuffer, 0, larger, 0, deflatedSize);
+                deflateBuffer = larger;
+            }
+            deflatedSize += deflater.deflate(deflateBuffer, deflatedSize, deflateBuffer.length - deflatedSize);
+        }
+        return deflatedSize;
+    }
+
+    /**
+     * Writes the length prefix, flags and payload of a frame.
+     *
+     * @param flags   the flags describing the payload
+     * @param payload the buffer holding the payload
+     * @param size    the size of the payload
+     * @return the frame
+     */
+    private byte[] writeFrame(int flags, byte[] payload, int size) {
+        int length = size + 1;
+        byte[] frame = new byte[length + 4];
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        frame[4] = (byte) flags;
+        System.arraycopy(payload, 0, frame, 5, size);
+        return frame;
+    }
+}
@@ -0,0 +1,90 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import domain.WorldRegistry;
+
+/**
+ * A Server that serves all clients from a small, fixed pool of EventLoop threads.
+ * An acceptor thread accepts channels and hands them to the event loops in turn,
+ * once the connection manager has admitted them.
+ */
+public class NioServer implements Server {
+    private final int port;
+    private final WorldRegistry worldRegistry;
+    private final EventLoop[] eventLoops;
+    private final ConnectionManager connectionManager;
+    private ServerSocketChannel serverChannel;
+    private int nextEventLoop = 0;
+
+    /**
+     * Constructs a new NioServer.
+     *
+     * @param port          the port to listen on
+     * @param worldRegistry the worlds clients will play in
+     * @param nrEventLoops  the number of event loop threads
+     * @param connectionManager decides which connections are served
+     * @throws IOException if a selector cannot be opened
+     */
+    public NioServer(int port, WorldRegistry worldRegistry, int nrEventLoops, ConnectionManager connectionManager) throws IOException {
+        this.port = port;
+        this.worldRegistry = worldRegistry;
+        this.connectionManager = connectionManager;
+        this.eventLoops = new EventLoop[nrEventLoops];
+        for (int i = 0; i < nrEventLoops; i++) {
+            eventLoops[i] = new EventLoop(worldRegistry, connectionManager);
+        }
+    }
+
+    @Override
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        connectionManager.start();
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i].start("event-loop-" + i);
+        }
+        Thread acceptor = new Thread(this::acceptClients, "acceptor");
+        acceptor.start();
+        System.out.println("Server listening on port " + port + " (nio, " + eventLoops.length + " event loops)");
+    }
+
+    /**
+     * Accepts channels until the server channel is closed, handing each one to the next event loop.
+     */
+    private void acceptClients() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                InetAddress address = ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+                if (!connectionManager.admit(address)) {
+                    channel.close();
+                    continue;
+                }
+                eventLoops[nextEventLoop].register(channel, address);
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        connectionManager.shutdown();
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+}
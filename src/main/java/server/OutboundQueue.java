@@ -0,0 +1,408 @@
+package server;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import domain.configuration.ConfigurationManager;
+
+/**
+ * The bounded queues of messages waiting to be written to one client, one for each Lane.
+ * Any thread may add messages; the writer of the connection takes them off, every queued response first,
+ * then every combat event, then every state update, so a reply to the client's own request is never held
+ * up by broadcasts from other robots. Messages in one lane are written in the order they were queued;
+ * messages in different lanes may overtake each other, and events carry their sequence number so clients
+ * can tell.
+ *
+ * Each lane has its own capacity. When the response lane is full, the message is refused and the client
+ * should be disconnected, since a client that does not read its own responses cannot be helped.
+ * When another lane is full, the overflow policy decides what happens:
+ *   "drop-oldest" - the oldest message in the lane is dropped to make room
+ *   "coalesce"    - a queued message about the same robot is replaced by the new one;
+ *                   if there is none, the oldest message in the lane is dropped
+ *   "disconnect"  - the message is refused and the client should be disconnected
+ *
+ * Deltas are never coalesced, since each builds on the messages queued before it. While a delta about a robot
+ * is queued, a newer message about that robot does not replace the older one either: taking the older one's
+ * place would put it ahead of the delta, and the delta would then roll the client back to stale values.
+ *
+ * While the queue is corked, a waiting writer is not woken up, so the messages produced while handling
+ * one request leave in a single write instead of one write each.
+ */
+public class OutboundQueue {
+
+    /**
+     * A queued message. The key names the robot a message is about, so newer messages can replace it.
+     * A delta names its robot too, but is never replaced.
+     */
+    private static class Entry {
+        private byte[] bytes;
+        private final String key;
+        private final boolean delta;
+
+        private Entry(byte[] bytes, String key, boolean delta) {
+            this.bytes = bytes;
+            this.key = key;
+            this.delta = delta;
+        }
+    }
+
+    /**
+     * The messages queued in one lane.
+     */
+    private static class LaneQueue {
+        private final int capacity;
+        private final String overflowPolicy;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private final HashMap<String, Entry> entriesByKey = new HashMap<>();
+        private final HashMap<String, Integer> deltasByKey = new HashMap<>();
+
+        private LaneQueue(int capacity, String overflowPolicy) {
+            this.capacity = capacity;
+            this.overflowPolicy = overflowPolicy;
+        }
+    }
+
+    private final LaneQueue[] lanes = new LaneQueue[Lane.values().length];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int size = 0;
+    private boolean closed = false;
+    private boolean corked = false;
+
+    private int maxDepth = 0;
+    private long dropped = 0;
+    private long coalesced = 0;
+
+    /**
+     * Constructs a new OutboundQueue.
+     *
+     * @param responseCapacity the maximum number of queued responses
+     * @param combatCapacity   the maximum number of queued combat events
+     * @param stateCapacity    the maximum number of queued state updates
+     * @param overflowPolicy   "drop-oldest", "coalesce" or "disconnect", for combat events and state updates
+     * @throws IllegalArgumentException if the overflow policy is not supported
+     */
+    public OutboundQueue(int responseCapacity, int combatCapacity, int stateCapacity, String overflowPolicy) {
+        switch (overflowPolicy) {
+            case "drop-oldest":
+            case "coalesce":
+            case "disconnect":
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported overflow policy: " + overflowPolicy);
+        }
+        lanes[Lane.RESPONSE.ordinal()] = new LaneQueue(responseCapacity, "disconnect");
+        lanes[Lane.COMBAT.ordinal()] = new LaneQueue(combatCapacity, overflowPolicy);
+        lanes[Lane.STATE.ordinal()] = new LaneQueue(stateCapacity, overflowPolicy);
+    }
+
+    /**
+     * Creates an OutboundQueue with the configured capacities and overflow policy.
+     *
+     * @return the queue
+     */
+    public static OutboundQueue fromConfiguration() {
+        return new OutboundQueue(ConfigurationManager.getResponseCapacity(), ConfigurationManager.getCombatCapacity(),
+                ConfigurationManager.getOutboundCapacity(), ConfigurationManager.getOverflowPolicy());
+    }
+
+    /**
+     * Adds a message to a lane, applying the overflow policy of the lane if it is full.
+     *
+     * @param bytes the message to write
+     * @param lane  the lane of the message
+     * @param key   the name of the robot the message is about, or null if it may not be coalesced
+     * @return false if the lane is full and the client should be disconnected, true otherwise
+     */
+    public boolean offer(byte[] bytes, Lane lane, String key) {
+        return offer(bytes, lane, key, false);
+    }
+
+    /**
+     * Adds a delta to a lane, applying the overflow policy of the lane if it is full.
+     * The delta is never replaced, and keeps newer messages about its robot from replacing older ones until it is taken.
+     *
+     * @param bytes     the message to write
+     * @param lane      the lane of the message
+     * @param robotName the name of the robot the delta is about
+     * @return false if the lane is full and the client should be disconnected, true otherwise
+     */
+    public boolean offerDelta(byte[] bytes, Lane lane, String robotName) {
+        return offer(bytes, lane, robotName, true);
+    }
+
+    /**
+     * Adds a message or a delta to a lane, applying the overflow policy of the lane if it is full.
+     */
+    private boolean offer(byte[] bytes, Lane lane, String key, boolean delta) {
+        lock.lock();
+        try {
+            if (closed) {
+                return true;
+            }
+            LaneQueue queue = lanes[lane.ordinal()];
+            if (queue.entries.size() >= queue.capacity) {
+                switch (queue.overflowPolicy) {
+                    case "disconnect":
+                        dropped++;
+                        ServerMetrics.MESSAGES_DROPPED.increment();
+                        return false;
+                    case "coalesce":
+                        Entry queued = key == null || delta || queue.deltasByKey.containsKey(key)
+                                ? null : queue.entriesByKey.get(key);
+                        if (queued != null) {
+                            queued.bytes = bytes;
+                            coalesced++;
+                            ServerMetrics.MESSAGES_COALESCED.increment();
+                            return true;
+                        }
+                        dropOldest(queue);
+                        break;
+                    default:
+                        dropOldest(queue);
+                        break;
+                }
+            }
+            Entry entry = new Entry(bytes, key, delta);
+            queue.entries.add(entry);
+            if (delta) {
+                queue.deltasByKey.merge(key, 1, Integer::sum);
+            }
+            else if (key != null) {
+                queue.entriesByKey.put(key, entry);
+            }
+            size++;
+            maxDepth = Math.max(maxDepth, size);
+            ServerMetrics.MESSAGES_QUEUED.increment();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the oldest message of a lane. Must be called while holding the lock.
+     *
+     * @param queue the lane
+     */
+    private void dropOldest(LaneQueue queue) {
+        removeFirst(queue);
+        dropped++;
+        ServerMetrics.MESSAGES_DROPPED.increment();
+    }
+
+    /**
+     * Removes and returns the oldest message of a lane. Must be called while holding the lock.
+     *
+     * @param queue the lane
+     * @return the oldest message, or null if the lane is empty
+     */
+    private byte[] removeFirst(LaneQueue queue) {
+        Entry entry = queue.entries.poll();
+        if (entry == null) {
+            return null;
+        }
+        if (entry.delta) {
+            queue.deltasByKey.computeIfPresent(entry.key, (key, count) -> count == 1 ? null : count - 1);
+        }
+        else if (entry.key != null && queue.entriesByKey.get(entry.key) == entry) {
+            queue.entriesByKey.remove(entry.key);
+        }
+        size--;
+        return entry.bytes;
+    }
+
+    /**
+     * Removes and returns the next message to write. Must be called while holding the lock.
+     *
+     * @return the oldest message of the first lane that has one, or null if the queue is empty
+     */
+    private byte[] removeNext() {
+        for (LaneQueue queue : lanes) {
+            byte[] bytes = removeFirst(queue);
+            if (bytes != null) {
+                return bytes;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes and returns the next message to write without waiting.
+     *
+     * @return the next message, or null if the queue is empty
+     */
+    public byte[] poll() {
+        lock.lock();
+        try {
+            return removeNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves up to the given number of queued messages to the batch without waiting, in the order they are to be written.
+     *
+     * @param batch       the list to move messages to
+     * @param maxMessages the largest number of messages to move
+     * @return the number of messages moved
+     */
+    public int drainTo(List<byte[]> batch, int maxMessages) {
+        lock.lock();
+        try {
+            int moved = 0;
+            byte[] bytes;
+            while (moved < maxMessages && (bytes = removeNext()) != null) {
+                batch.add(bytes);
+                moved++;
+            }
+            return moved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Holds back a waiting writer until uncork is called.
+     */
+    public void cork() {
+        lock.lock();
+        try {
+            corked = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets a waiting writer take the messages queued since cork was called.
+     */
+    public void uncork() {
+        lock.lock();
+        try {
+            corked = false;
+            if (size > 0) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there are messages and the queue is not corked, then moves all of them to the batch
+     * in the order they are to be written.
+     *
+     * @param batch the list to move messages to
+     * @return false if the queue was closed and every message has been taken, true otherwise
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitMessages(List<byte[]> batch) throws InterruptedException {
+        lock.lock();
+        try {
+            while (size == 0 || (corked && !closed)) {
+                if (size == 0 && closed) {
+                    return false;
+                }
+                notEmpty.await(1, TimeUnit.SECONDS);
+            }
+            byte[] bytes;
+            while ((bytes = removeNext()) != null) {
+                batch.add(bytes);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the queue. Messages already queued can still be taken; new messages are ignored.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages waiting to be written.
+     *
+     * @return the queue depth
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages in one lane waiting to be written.
+     *
+     * @param lane the lane
+     * @return the depth of the lane
+     */
+    public int getDepth(Lane lane) {
+        lock.lock();
+        try {
+            return lanes[lane.ordinal()].entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the largest number of messages that were waiting at the same time.
+     *
+     * @return the maximum queue depth
+     */
+    public int getMaxDepth() {
+        lock.lock();
+        try {
+            return maxDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages dropped because the queue was full.
+     *
+     * @return the number of dropped messages
+     */
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages that replaced a queued message about the same robot.
+     *
+     * @return the number of coalesced messages
+     */
+    public long getCoalesced() {
+        lock.lock();
+        try {
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package server;
+
+import java.io.IOException;
+
+import domain.BroadcastBus;
+import domain.WorldRegistry;
+import domain.configuration.Config;
+import domain.configuration.ConfigurationManager;
+
+/**
+ * Entry point of the robot socket server.
+ *
+ * Options:
+ *   --engine=nio|blocking   how connections are served (default: nio)
+ *   --event-loops=N         number of event loop threads for the nio engine
+ *   --threads=platform|virtual  thread kind per connection for the blocking engine (virtual needs Java 21)
+ *   --framing=newline|length    how requests are delimited on the socket (default: newline)
+ *   --outbound-capacity=N       state updates that may wait to be written to one client
+ *   --response-capacity=N       responses that may wait to be written to one client before it is disconnected
+ *   --combat-capacity=N         combat events that may wait to be written to one client
+ *   --overflow=drop-oldest|coalesce|disconnect  what happens when a client's combat or state lane is full
+ *   --metrics-interval=SECONDS  print server metrics at this interval (default: off)
+ *   --compression-threshold=BYTES  smallest message compressed for clients that connect with "deflate"
+ *   --max-connections=N         connections served at once (0: no limit)
+ *   --max-unlaunched=N          connections without a robot served at once (0: no limit)
+ *   --max-connections-per-ip=N  connections from one address served at once (0: no limit)
+ *   --idle-timeout=SECONDS      close connections that send nothing for this long (0: never)
+ *   --heartbeat-interval=SECONDS  ping clients that connect with "heartbeat" after this much silence (0: never)
+ *   --heartbeat-misses=N        intervals a pinged client may stay silent before it is disconnected
+ *   --interest-radius=N         distance within which robots are told about moves and shots (0: everywhere)
+ *   --delta-keyframe-interval=N  updates about a robot between full states for clients that connect with "delta"
+ *   --state-coalesce-window=MILLIS  send at most one state change per robot per window (default: off)
+ *   --event-ring-size=N         events of a world that may wait to be broadcast (rounded up to a power of two)
+ *   --execution-mode=shared|actor  execute commands on each connection's thread, or on one thread per world (default: shared)
+ *   --region-size=N             width of the regions locked while a robot moves or fires in the shared execution mode
+ *   --max-worlds=N              worlds hosted at once, including the default one (0: no limit)
+ */
+public class RobotServer {
+
+    public static void main(String[] args) throws IOException {
+        parseOptions(args);
+
+        WorldRegistry worldRegistry = new WorldRegistry(ConfigurationManager.getMaxWorlds());
+        Server server = createServer(worldRegistry);
+        server.start();
+        if (ConfigurationManager.getStateCoalesceWindow() > 0) {
+            BroadcastBus.startCoalescing(ConfigurationManager.getStateCoalesceWindow(), worldRegistry);
+        }
+        if (ConfigurationManager.getMetricsInterval() > 0) {
+            ServerMetrics.printEvery(ConfigurationManager.getMetricsInterval());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown));
+    }
+
+    /**
+     * Creates the server for the configured engine.
+     *
+     * @param worldRegistry the worlds clients will play in
+     * @return the server
+     * @throws IOException if the server cannot be created
+     */
+    public static Server createServer(WorldRegistry worldRegistry) throws IOException {
+        int port = ConfigurationManager.getPort();
+        ConnectionManager connectionManager = new ConnectionManager(ConfigurationManager.getMaxConnections(),
+                ConfigurationManager.getMaxUnlaunched(), ConfigurationManager.getMaxConnectionsPerIp(),
+                ConfigurationManager.getIdleTimeout(), ConfigurationManager.getHeartbeatInterval(),
+                ConfigurationManager.getHeartbeatMisses());
+        if (ConfigurationManager.getEngine().equals("blocking")) {
+            return new BlockingServer(port, worldRegistry, ConfigurationManager.getThreads(), connectionManager);
+        }
+        return new NioServer(port, worldRegistry, ConfigurationManager.getEventLoops(), connectionManager);
+    }
+
+    /**
+     * Applies command line options of the form --name=value to the configuration.
+     *
+     * @param args the command line arguments
+     */
+    private static void parseOptions(String[] args) {
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Unsupported option: " + arg);
+            }
+            switch (option[0]) {
+                case "engine":
+                    Config.ENGINE = option[1];
+                    break;
+                case "event-loops":
+                    Config.EVENT_LOOPS = Integer.parseInt(option[1]);
+                    break;
+                case "threads":
+                    Config.THREADS = option[1];
+                    break;
+                case "framing":
+                    Config.FRAMING = option[1];
+                    break;
+                case "outbound-capacity":
+                    Config.OUTBOUND_CAPACITY = Integer.parseInt(option[1]);
+                    break;
+                case "response-capacity":
+                    Config.RESPONSE_CAPACITY = Integer.parseInt(option[1]);
+                    break;
+                case "combat-capacity":
+                    Config.COMBAT_CAPACITY = Integer.parseInt(option[1]);
+                    break;
+                case "overflow":
+                    Config.OVERFLOW_POLICY = option[1];
+                    break;
+                case "compression-threshold":
+                    Config.COMPRESSION_THRESHOLD = Integer.parseInt(option[1]);
+                    break;
+                case "max-connections":
+                    Config.MAX_CONNECTIONS = Integer.parseInt(option[1]);
+                    break;
+                case "max-unlaunched":
+                    Config.MAX_UNLAUNCHED = Integer.parseInt(option[1]);
+                    break;
+                case "max-connections-per-ip":
+                    Config.MAX_CONNECTIONS_PER_IP = Integer.parseInt(option[1]);
+                    break;
+                case "idle-timeout":
+                    Config.IDLE_TIMEOUT = Integer.parseInt(option[1]);
+                    break;
+                case "heartbeat-interval":
+                    Config.HEARTBEAT_INTERVAL = Integer.parseInt(option[1]);
+                    break;
+                case "heartbeat-misses":
+                    Config.HEARTBEAT_MISSES = Integer.parseInt(option[1]);
+                    break;
+                case "interest-radius":
+                    Config.INTEREST_RADIUS = Integer.parseInt(option[1]);
+                    break;
+                case "delta-keyframe-interval":
+                    Config.DELTA_KEYFRAME_INTERVAL = Integer.parseInt(option[1]);
+                    break;
+                case "event-ring-size":
+                    Config.EVENT_RING_SIZE = Integer.parseInt(option[1]);
+                    break;
+                case "execution-mode":
+                    Config.EXECUTION_MODE = option[1];
+                    break;
+                case "max-worlds":
+                    Config.MAX_WORLDS = Integer.parseInt(option[1]);
+                    break;
+                case "region-size":
+                    Config.REGION_SIZE = Integer.parseInt(option[1]);
+                    break;
+                case "state-coalesce-window":
+                    Config.STATE_COALESCE_WINDOW = Integer.parseInt(option[1]);
+                    break;
+                case "metrics-interval":
+                    Config.METRICS_INTERVAL = Integer.parseInt(option[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported option: " + arg);
+            }
+        }
+    }
+}
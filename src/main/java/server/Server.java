@@ -0,0 +1,21 @@
+package server;
+
+import java.io.IOException;
+
+/**
+ * Defines a server that accepts robot clients and hands them over to a ClientHandler.
+ */
+public interface Server {
+
+    /**
+     * Starts accepting clients. Returns once the server is listening.
+     *
+     * @throws IOException if the server socket cannot be opened
+     */
+    void start() throws IOException;
+
+    /**
+     * Stops accepting clients and closes the server socket.
+     */
+    void shutdown();
+}
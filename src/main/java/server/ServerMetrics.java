@@ -0,0 +1,79 @@
+package server;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by every connection of the server.
+ * They can be printed at a fixed interval with the --metrics-interval option.
+ */
+public class ServerMetrics {
+    public static final LongAdder MESSAGES_QUEUED = new LongAdder();
+    public static final LongAdder MESSAGES_DROPPED = new LongAdder();
+    public static final LongAdder MESSAGES_COALESCED = new LongAdder();
+    public static final LongAdder OVERFLOW_DISCONNECTS = new LongAdder();
+    public static final LongAdder SOCKET_WRITES = new LongAdder();
+    public static final LongAdder CONNECTIONS_REJECTED = new LongAdder();
+    public static final LongAdder CONNECTIONS_EVICTED = new LongAdder();
+    public static final LongAdder HEARTBEAT_TIMEOUTS = new LongAdder();
+    public static final LongAdder BROADCASTS_SENT = new LongAdder();
+    public static final LongAdder BROADCASTS_FILTERED = new LongAdder();
+    public static final LongAdder STATE_CHANGES_COALESCED = new LongAdder();
+    public static final LongAdder MESSAGES_COMPRESSED = new LongAdder();
+    public static final LongAdder BYTES_BEFORE_COMPRESSION = new LongAdder();
+    public static final LongAdder BYTES_AFTER_COMPRESSION = new LongAdder();
+    public static final LongAdder COMPRESSION_NANOS = new LongAdder();
+    public static final LongAdder EVENTS_PUBLISHED = new LongAdder();
+    public static final LongAdder EVENTS_CONSUMED = new LongAdder();
+    public static final LongAdder EVENT_LAG_NANOS = new LongAdder();
+    public static final LongAdder EVENT_RING_FULL_WAITS = new LongAdder();
+    public static final LongAdder WORLD_TASKS_SUBMITTED = new LongAdder();
+    public static final LongAdder WORLD_TASKS_EXECUTED = new LongAdder();
+
+    /**
+     * Returns the current value of every counter.
+     *
+     * @return a one-line report of the counters
+     */
+    public static String report() {
+        return "messages queued=" + MESSAGES_QUEUED.sum()
+                + " dropped=" + MESSAGES_DROPPED.sum()
+                + " coalesced=" + MESSAGES_COALESCED.sum()
+                + " socket writes=" + SOCKET_WRITES.sum()
+                + " overflow disconnects=" + OVERFLOW_DISCONNECTS.sum()
+                + " connections rejected=" + CONNECTIONS_REJECTED.sum()
+                + " evicted=" + CONNECTIONS_EVICTED.sum()
+                + " heartbeat timeouts=" + HEARTBEAT_TIMEOUTS.sum()
+                + " broadcasts sent=" + BROADCASTS_SENT.sum()
+                + " filtered=" + BROADCASTS_FILTERED.sum()
+                + " state changes coalesced=" + STATE_CHANGES_COALESCED.sum()
+                + " compressed=" + MESSAGES_COMPRESSED.sum()
+                + " bytes saved=" + (BYTES_BEFORE_COMPRESSION.sum() - BYTES_AFTER_COMPRESSION.sum())
+                + " of " + BYTES_BEFORE_COMPRESSION.sum()
+                + " compression cpu ms=" + COMPRESSION_NANOS.sum() / 1_000_000
+                + " events published=" + EVENTS_PUBLISHED.sum()
+                + " consumed=" + EVENTS_CONSUMED.sum()
+                + " consumer lag=" + (EVENTS_PUBLISHED.sum() - EVENTS_CONSUMED.sum())
+                + " average lag us=" + EVENT_LAG_NANOS.sum() / Math.max(1, EVENTS_CONSUMED.sum()) / 1000
+                + " ring full waits=" + EVENT_RING_FULL_WAITS.sum()
+                + " world tasks=" + WORLD_TASKS_EXECUTED.sum()
+                + " waiting=" + (WORLD_TASKS_SUBMITTED.sum() - WORLD_TASKS_EXECUTED.sum());
+    }
+
+    /**
+     * Prints the report at a fixed interval on a daemon thread.
+     *
+     * @param intervalSeconds the number of seconds between reports
+     */
+    public static void printEvery(int intervalSeconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> System.out.println("Metrics: " + report()),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,125 @@
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A Transport that writes to a blocking socket.
+ * Used when each client is served by its own thread.
+ *
+ * Messages are queued and written by a writer thread of their own, so a thread that broadcasts to
+ * a slow client is never blocked by it. The writer waits on a ReentrantLock condition rather than
+ * a synchronized block, so a virtual writer thread does not pin its carrier thread.
+ * Every message the writer finds queued is copied into one buffer and written with a single write.
+ */
+public class SocketTransport implements Transport {
+    private final Socket socket;
+    private final OutputStream out;
+    private final OutboundQueue outboundQueue;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Constructs a new SocketTransport for the given socket and starts its writer thread.
+     *
+     * @param socket            the client socket
+     * @param connectionThreads creates the writer thread
+     * @throws IOException if the output stream of the socket cannot be opened
+     */
+    public SocketTransport(Socket socket, ConnectionThreads connectionThreads) throws IOException {
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream(), WRITE_BUFFER_SIZE);
+        this.outboundQueue = OutboundQueue.fromConfiguration();
+        connectionThreads.start(this::writeMessages);
+    }
+
+    @Override
+    public void send(byte[] message, Lane lane, String coalesceKey) {
+        if (!outboundQueue.offer(message, lane, coalesceKey)) {
+            ServerMetrics.OVERFLOW_DISCONNECTS.increment();
+            closeNow();
+        }
+    }
+
+    @Override
+    public void sendDelta(byte[] message, Lane lane, String robotName) {
+        if (!outboundQueue.offerDelta(message, lane, robotName)) {
+            ServerMetrics.OVERFLOW_DISCONNECTS.increment();
+            closeNow();
+        }
+    }
+
+    @Override
+    public void cork() {
+        outboundQueue.cork();
+    }
+
+    @Override
+    public void uncork() {
+        outboundQueue.uncork();
+    }
+
+    /**
+     * Writes queued messages until the queue is closed and empty, then closes the socket.
+     */
+    private void writeMessages() {
+        List<byte[]> batch = new ArrayList<>();
+        try {
+            while (outboundQueue.awaitMessages(batch)) {
+                for (byte[] bytes : batch) {
+                    out.write(bytes);
+                }
+                out.flush();
+                ServerMetrics.SOCKET_WRITES.increment();
+                batch.clear();
+            }
+        } catch (IOException | InterruptedException e) {
+            // the client is gone; the reading thread notices the broken connection and cleans up.
+        } finally {
+            closeNow();
+        }
+    }
+
+    /**
+     * Closes the connection once every queued message has been written.
+     */
+    @Override
+    public void close() {
+        outboundQueue.close();
+    }
+
+    /**
+     * Closes the socket straight away. The reading thread then notices the closed socket and disconnects the client.
+     */
+    @Override
+    public void abort() {
+        closeNow();
+    }
+
+    /**
+     * Closes the socket straight away, dropping any queued messages.
+     */
+    void closeNow() {
+        outboundQueue.close();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !socket.isClosed();
+    }
+
+    @Override
+    public OutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+}
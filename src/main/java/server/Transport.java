@@ -0,0 +1,75 @@
+package server;
+
+/**
+ * Represents the connection a ClientHandler talks through.
+ * Hides whether the client is served by a blocking socket thread or by a non-blocking event loop.
+ */
+public interface Transport {
+
+    /**
+     * Queues an encoded response for the client.
+     *
+     * @param message the message to send, as encoded by the MessageEncoder of the client
+     */
+    default void send(byte[] message) {
+        send(message, Lane.RESPONSE, null);
+    }
+
+    /**
+     * Queues an encoded message for the client in the given lane.
+     * If the client falls behind, a message about a robot may replace an older queued message about the same robot.
+     *
+     * @param message     the message to send, as encoded by the MessageEncoder of the client
+     * @param lane        the lane of the message
+     * @param coalesceKey the name of the robot the message is about, or null if the message may not be replaced
+     */
+    void send(byte[] message, Lane lane, String coalesceKey);
+
+    /**
+     * Queues an encoded delta for the client in the given lane.
+     * A delta is never replaced, and no newer message about its robot may take the place of an older one queued before it.
+     *
+     * @param message   the delta to send, as encoded by the MessageEncoder of the client
+     * @param lane      the lane of the delta
+     * @param robotName the name of the robot the delta is about
+     */
+    void sendDelta(byte[] message, Lane lane, String robotName);
+
+    /**
+     * Holds back messages sent from now on until uncork is called, so they are written together.
+     * Transports whose writes already happen once per event loop pass need not do anything.
+     */
+    default void cork() {
+    }
+
+    /**
+     * Lets the messages held back since cork was called be written.
+     */
+    default void uncork() {
+    }
+
+    /**
+     * Closes the connection to the client once queued messages have been written.
+     */
+    void close();
+
+    /**
+     * Closes the connection to the client straight away, dropping any queued messages,
+     * and makes sure the client handler is disconnected. May be called from any thread.
+     */
+    void abort();
+
+    /**
+     * Checks if the connection to the client is still open.
+     *
+     * @return true if the connection is open, false otherwise
+     */
+    boolean isOpen();
+
+    /**
+     * Returns the queue of messages waiting to be written to the client.
+     *
+     * @return the outbound queue
+     */
+    OutboundQueue getOutboundQueue();
+}
@@ -0,0 +1,144 @@
+package domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import domain.world.Robot;
+import domain.world.World;
+import domain.world.util.Position;
+import server.Broadcast;
+
+class BroadcastBusTest {
+
+    /**
+     * A spectator that records the shields of every state change it is sent.
+     */
+    private static class Recorder extends ClientHandler {
+        private final List<Integer> shields = new ArrayList<>();
+
+        private Recorder(WorldRegistry worldRegistry) {
+            super(null, worldRegistry, null);
+        }
+
+        @Override
+        public boolean hasJoined() {
+            return true;
+        }
+
+        @Override
+        public boolean isSpectator() {
+            return true;
+        }
+
+        @Override
+        public void send(Broadcast broadcast) {
+            if (broadcast.getState() != null) {
+                shields.add((Integer) broadcast.getState().get("shields"));
+            }
+        }
+    }
+
+    @Test
+    void stateSentNowIsNeverOvertakenByAHeldBackState() throws Exception {
+        WorldRegistry worldRegistry = new WorldRegistry(0);
+        World world = worldRegistry.getDefaultWorld();
+        // the flusher of the coalescing window races the explicit flushes below as well.
+        BroadcastBus.startCoalescing(1, worldRegistry);
+        ClientHandler sender = new ClientHandler(null, worldRegistry, null);
+        Recorder recorder = new Recorder(worldRegistry);
+        Robot robot = new Robot("target", "sniper", 0, 5, 0, new Position(0, 0));
+
+        ExecutorService flusher = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 5000; i++) {
+                robot.setShiels(2 * i);
+                BroadcastBus.publishStateChange(sender, robot);
+                robot.setShiels(2 * i + 1);
+                Future<?> flushed = flusher.submit(() -> BroadcastBus.flushStateChanges(world));
+                BroadcastBus.publishStateChangeNow(sender, robot);
+                flushed.get();
+            }
+        } finally {
+            flusher.shutdown();
+        }
+        while (world.getEventRing().getLag() > 0) {
+            Thread.sleep(1);
+        }
+
+        assertThat(recorder.shields).isSorted();
+        assertThat(recorder.shields).last().isEqualTo(2 * 4999 + 1);
+    }
+
+    @Test
+    void eventsGoToTheWorldWhoseRingTheyWerePublishedTo() {
+        WorldRegistry worldRegistry = new WorldRegistry(0);
+        World arena = worldRegistry.enter("arena");
+        // the sender is in the default world, as a client that has moved since publishing would be.
+        ClientHandler sender = new ClientHandler(null, worldRegistry, null);
+        Recorder recorder = new Recorder(worldRegistry);
+        worldRegistry.getDefaultWorld().getClientRegistry().unregister(recorder);
+        arena.getClientRegistry().register(recorder);
+        Robot robot = new Robot("target", "sniper", 7, 5, 0, new Position(0, 0));
+
+        WorldEvent event = new WorldEvent();
+        event.type = WorldEvent.STATE;
+        event.sender = sender;
+        event.robotName = robot.getName();
+        event.copyState(robot);
+        BroadcastBus.dispatch(arena, event);
+
+        assertThat(recorder.shields).containsExactly(7);
+    }
+
+    @Test
+    void spectatorThatMovedOnDoesNotJoinTheWorldItLeft() {
+        WorldRegistry worldRegistry = new WorldRegistry(0);
+        World arena = worldRegistry.enter("arena");
+        List<Broadcast> sent = new ArrayList<>();
+        ClientHandler spectator = new ClientHandler(null, worldRegistry, null) {
+            @Override
+            public void send(Broadcast broadcast) {
+                sent.add(broadcast);
+            }
+        };
+
+        WorldEvent event = new WorldEvent();
+        event.type = WorldEvent.JOIN;
+        event.sender = spectator;
+        BroadcastBus.dispatch(arena, event);
+
+        assertThat(sent).isEmpty();
+        assertThat(spectator.hasJoined()).isFalse();
+    }
+
+    @Test
+    void holdingBackAStateChangeAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        WorldRegistry worldRegistry = new WorldRegistry(0);
+        BroadcastBus.startCoalescing(1, worldRegistry);
+        ClientHandler sender = new ClientHandler(null, worldRegistry, null);
+        Robot robot = new Robot("mover", "sniper", 0, 5, 0, new Position(0, 0));
+
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < 100_000; i++) {
+                BroadcastBus.publishStateChange(sender, robot);
+            }
+            fewest = Math.min(fewest, threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+        }
+
+        System.out.println("Held back state change: " + (double) fewest / 100_000 + " bytes per call");
+        assertThat(fewest).isLessThan(100_000L);
+    }
+}
@@ -0,0 +1,85 @@
+package domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class EventRingTest {
+
+    private static void publish(EventRing ring, String robotName) {
+        long sequence = ring.next();
+        WorldEvent event = ring.get(sequence);
+        event.robotName = robotName;
+        ring.publish(sequence);
+    }
+
+    private static void awaitLag(EventRing ring, long lag) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ring.getLag() != lag && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(ring.getLag()).isEqualTo(lag);
+    }
+
+    @Test
+    void handlesEventsInOrderAcrossManyTripsAroundTheRing() throws Exception {
+        List<String> handled = new CopyOnWriteArrayList<>();
+        EventRing ring = new EventRing(4, "test-events", event -> handled.add(event.robotName));
+        try {
+            for (int i = 0; i < 1000; i++) {
+                publish(ring, "robot" + i);
+            }
+            awaitLag(ring, 0);
+        } finally {
+            ring.stop();
+        }
+
+        assertThat(handled).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(handled.get(i)).isEqualTo("robot" + i);
+        }
+    }
+
+    @Test
+    void publisherWaitsForALaggingConsumerInsteadOfOverwritingEvents() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> handled = new CopyOnWriteArrayList<>();
+        EventRing ring = new EventRing(4, "test-events", event -> {
+            try {
+                // the first event is read only after the publisher has run into the full ring.
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(event.robotName);
+        });
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                publish(ring, "robot" + i);
+            }
+        });
+        try {
+            publisher.start();
+            // the four slots hold events 0 to 3, and the claim for event 4 waits for the consumer.
+            awaitLag(ring, 5);
+            publisher.join(100);
+            assertThat(publisher.isAlive()).isTrue();
+            assertThat(ring.get(4).robotName).isEqualTo("robot0");
+
+            release.countDown();
+            publisher.join(10_000);
+            awaitLag(ring, 0);
+        } finally {
+            release.countDown();
+            ring.stop();
+        }
+
+        assertThat(handled).containsExactly("robot0", "robot1", "robot2", "robot3", "robot4",
+                "robot5", "robot6", "robot7", "robot8", "robot9");
+    }
+}
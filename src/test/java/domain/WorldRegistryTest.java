@@ -0,0 +1,49 @@
+package domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import domain.world.World;
+
+class WorldRegistryTest {
+
+    @Test
+    void reclaimsAWorldOnceItsLastClientLeaves() {
+        WorldRegistry registry = new WorldRegistry(2);
+        World arena = registry.enter("Arena");
+        assertThat(registry.enter("arena")).isSameAs(arena);
+        assertThat(registry.enter("other")).isNull();
+
+        registry.leave(arena);
+        assertThat(registry.get("arena")).isSameAs(arena);
+        registry.leave(arena);
+
+        assertThat(registry.get("arena")).isNull();
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.enter("other")).isNotNull();
+    }
+
+    @Test
+    void neverReclaimsTheDefaultWorld() {
+        WorldRegistry registry = new WorldRegistry(0);
+        World defaultWorld = registry.enter(WorldRegistry.DEFAULT_WORLD);
+
+        registry.leave(defaultWorld);
+        registry.leave(defaultWorld);
+
+        assertThat(registry.getDefaultWorld()).isSameAs(defaultWorld);
+        assertThat(registry.get(WorldRegistry.DEFAULT_WORLD)).isSameAs(defaultWorld);
+    }
+
+    @Test
+    void acceptsOnlyShortPlainWorldNames() {
+        assertThat(WorldRegistry.isValidName("arena_1-B")).isTrue();
+        assertThat(WorldRegistry.isValidName("x".repeat(32))).isTrue();
+        assertThat(WorldRegistry.isValidName("x".repeat(33))).isFalse();
+        assertThat(WorldRegistry.isValidName("")).isFalse();
+        assertThat(WorldRegistry.isValidName("two words")).isFalse();
+        assertThat(WorldRegistry.isValidName("../etc")).isFalse();
+        assertThat(WorldRegistry.isValidName(null)).isFalse();
+    }
+}
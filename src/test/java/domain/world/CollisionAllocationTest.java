@@ -0,0 +1,89 @@
+package domain.world;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import domain.world.util.Position;
+
+/**
+ * Measures what moves and shots allocate once the JIT has compiled them, with the allocation counter of the thread.
+ * Prints the bytes allocated per call, so the figures can be reproduced with "mvn test -Dtest=CollisionAllocationTest".
+ */
+class CollisionAllocationTest {
+    private static final int CALLS = 200_000;
+    private static final int ROUNDS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Returns the fewest bytes allocated per call over several rounds, the first rounds warming up the JIT.
+     */
+    private static double bytesPerCall(IntSupplier call) {
+        long fewest = Long.MAX_VALUE;
+        int sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < CALLS; i++) {
+                sink += call.getAsInt();
+            }
+            fewest = Math.min(fewest, THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+        }
+        assertThat(sink).isNotNegative();
+        return (double) fewest / CALLS;
+    }
+
+    private static World worldWithObstacles() {
+        List<Obstacle> obstacles = new ArrayList<>();
+        obstacles.add(new SquareObstacle(10, 10, 2));
+        obstacles.add(new SquareObstacle(-15, 5, 1));
+        return new World(40, obstacles);
+    }
+
+    @Test
+    void blockedMovesAndHitsAllocateNothing() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        World world = worldWithObstacles();
+        Robot shooter = new Robot("shooter", "sniper", 5, 5, 20, new Position(0, 0));
+        Robot target = new Robot("target", "sniper", 5, 5, 20, new Position(0, 5));
+        world.addRobotToWorld(shooter);
+        world.addRobotToWorld(target);
+        // the first move takes the shooter up to the target; every later one is blocked where it stands.
+        world.updatePosition(shooter, 10);
+
+        double bytes = bytesPerCall(() -> {
+            int hits = world.fireGun(shooter, 100).getOtherRobot() == target ? 1 : 0;
+            return hits + (world.updatePosition(shooter, 10).isBlocked() ? 1 : 0);
+        });
+
+        System.out.println("Blocked move plus hit: " + bytes + " bytes per call");
+        assertThat(bytes).isLessThan(1.0);
+    }
+
+    @Test
+    void successfulMovesAllocateOnlyTheNewPosition() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        World world = worldWithObstacles();
+        Robot robot = new Robot("mover", "sniper", 5, 5, 20, new Position(0, 0));
+        world.addRobotToWorld(robot);
+        int[] steps = {5};
+
+        double bytes = bytesPerCall(() -> {
+            steps[0] = -steps[0];
+            return world.updatePosition(robot, steps[0]).isBlocked() ? 1 : 0;
+        });
+
+        // a move replaces the robot's Position and the position array of its state, 24 bytes each, which events
+        // and the delta tracker keep references to, so neither can be changed in place. Moving to another cell
+        // of the robot grid allocates nothing.
+        System.out.println("Successful move: " + bytes + " bytes per call");
+        assertThat(bytes).isLessThanOrEqualTo(48.0);
+    }
+}
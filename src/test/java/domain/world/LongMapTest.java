@@ -0,0 +1,65 @@
+package domain.world;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LongMapTest {
+
+    @Test
+    void behavesLikeAHashMap() {
+        Random random = new Random(1);
+        LongMap<Long> map = new LongMap<>(2);
+        HashMap<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            // few distinct keys, so the same keys are put and removed again and again.
+            long key = random.nextInt(500) - 250L;
+            if (random.nextBoolean()) {
+                map.put(key, (long) i);
+                expected.put(key, (long) i);
+            }
+            else {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            }
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = -250; key < 250; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+    }
+
+    @Test
+    void findsKeysThatShareASlot() {
+        LongMap<String> map = new LongMap<>(4);
+        long[] keys = {0, 1L << 32, 2L << 32, 3L << 32, -1, Long.MIN_VALUE};
+        for (long key : keys) {
+            map.put(key, Long.toString(key));
+        }
+        map.remove(1L << 32);
+
+        assertThat(map.get(1L << 32)).isNull();
+        for (long key : keys) {
+            if (key != 1L << 32) {
+                assertThat(map.get(key)).isEqualTo(Long.toString(key));
+            }
+        }
+    }
+
+    @Test
+    void forgetsEveryKeyWhenCleared() {
+        LongMap<String> map = new LongMap<>();
+        for (long key = 0; key < 100; key++) {
+            map.put(key << 32, "tile");
+        }
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get(5L << 32)).isNull();
+        map.put(5L << 32, "again");
+        assertThat(map.get(5L << 32)).isEqualTo("again");
+    }
+}
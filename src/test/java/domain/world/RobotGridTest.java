@@ -0,0 +1,62 @@
+package domain.world;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import domain.world.util.Position;
+
+class RobotGridTest {
+
+    private static final int[][] STEPS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    @Test
+    void pathQueryMatchesCheckingEachPosition() {
+        Random random = new Random(3);
+        for (int tileSize : new int[]{0, 1, 2, 4}) {
+            RobotGrid grid = new RobotGrid(tileSize);
+            for (int i = 0; i < 25; i++) {
+                grid.add(new Robot("r" + i, "sniper", 5, 5, tileSize, randomPosition(random, 30)));
+            }
+            for (int check = 0; check < 5000; check++) {
+                int x = random.nextInt(71) - 35;
+                int y = random.nextInt(71) - 35;
+                int steps = random.nextInt(30);
+                int[] step = STEPS[random.nextInt(STEPS.length)];
+
+                Robot expected = null;
+                for (int k = 0; k <= steps && expected == null; k++) {
+                    expected = grid.findBlocking(x + step[0] * k, y + step[1] * k, null);
+                }
+                assertThat(grid.findBlocking(x, y, step[0], step[1], steps, null)).isSameAs(expected);
+            }
+        }
+    }
+
+    @Test
+    void findsRobotsAfterTheyMoveAndLeave() {
+        RobotGrid grid = new RobotGrid(2);
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Robot robot = new Robot("r" + i, "sniper", 5, 5, 2, new Position(i * 10, 0));
+            robots.add(robot);
+            grid.add(robot);
+        }
+        Robot moved = robots.get(3);
+        moved.setPosition(new Position(-50, 50));
+        grid.remove(robots.get(4));
+
+        assertThat(grid.findBlocking(30, 0, null)).isNull();
+        assertThat(grid.findBlocking(-50, 50, null)).isSameAs(moved);
+        assertThat(grid.findBlocking(40, 0, null)).isNull();
+        assertThat(grid.findBlocking(50, 0, null)).isSameAs(robots.get(5));
+    }
+
+    private static Position randomPosition(Random random, int bound) {
+        return new Position(random.nextInt(2 * bound + 1) - bound, random.nextInt(2 * bound + 1) - bound);
+    }
+}
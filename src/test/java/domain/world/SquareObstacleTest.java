@@ -0,0 +1,51 @@
+package domain.world;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import domain.world.util.Position;
+
+class SquareObstacleTest {
+
+    private static final int[][] STEPS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    @Test
+    void blocksPathMatchesBlocksPositionAtEachStep() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Obstacle> obstacles = new ArrayList<>();
+            for (int i = 0; i < 15; i++) {
+                obstacles.add(new SquareObstacle(random.nextInt(41) - 20, random.nextInt(41) - 20, random.nextInt(3)));
+            }
+            World world = new World(40, obstacles);
+            List<Robot> robots = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                Robot robot = new Robot("t" + trial + "r" + i, "sniper", 5, 5, 20, randomPosition(random));
+                robots.add(robot);
+                world.addRobotToWorld(robot);
+            }
+            for (int check = 0; check < 200; check++) {
+                Robot robot = robots.get(random.nextInt(robots.size()));
+                Position start = randomPosition(random);
+                int[] step = STEPS[random.nextInt(STEPS.length)];
+                int steps = random.nextInt(40);
+
+                Collision expected = Collision.NONE;
+                for (int k = 0; k <= steps && !expected.isBlocked(); k++) {
+                    Position position = new Position(start.getX() + step[0] * k, start.getY() + step[1] * k);
+                    expected = SquareObstacle.blocksPosition(position, robot, world);
+                }
+                assertThat(SquareObstacle.blocksPath(start, step[0], step[1], steps, robot, world)).isSameAs(expected);
+            }
+        }
+    }
+
+    private static Position randomPosition(Random random) {
+        return new Position(random.nextInt(41) - 20, random.nextInt(41) - 20);
+    }
+}
@@ -0,0 +1,84 @@
+package domain.world;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import domain.world.util.LaunchResponse;
+import domain.world.util.Position;
+
+class WorldTest {
+
+    private static List<LaunchResponse> launchTogether(World world, List<Robot> robots, int maxRobots) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<LaunchResponse>> launches = new ArrayList<>();
+            for (Robot robot : robots) {
+                launches.add(() -> world.launchRobot(robot, maxRobots));
+            }
+            List<LaunchResponse> responses = new ArrayList<>();
+            for (Future<LaunchResponse> response : executor.invokeAll(launches)) {
+                responses.add(response.get());
+            }
+            return responses;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentLaunchesDoNotExceedTheLimit() throws Exception {
+        World world = new World(200, new ArrayList<>());
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            // far enough apart that no robot blocks another, and spread over many regions.
+            robots.add(new Robot("r" + i, "sniper", 5, 5, 20, new Position(-96 + (i % 8) * 24, -96 + (i / 8) * 24)));
+        }
+
+        List<LaunchResponse> responses = launchTogether(world, robots, 10);
+
+        assertThat(responses).filteredOn(response -> response == LaunchResponse.SUCCESS).hasSize(10);
+        assertThat(responses).filteredOn(response -> response == LaunchResponse.FAILED_NO_SPACE).hasSize(54);
+        assertThat(world.getRobots()).hasSize(10);
+    }
+
+    @Test
+    void concurrentLaunchesDoNotShareANameOrAPosition() throws Exception {
+        World world = new World(200, new ArrayList<>());
+        List<Robot> sameName = new ArrayList<>();
+        List<Robot> samePosition = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            sameName.add(new Robot("HAL", "sniper", 5, 5, 20, new Position(-96 + (i % 8) * 24, -96 + (i / 8) * 24)));
+            samePosition.add(new Robot("r" + i, "sniper", 5, 5, 20, new Position(50, 50)));
+        }
+
+        List<LaunchResponse> named = launchTogether(world, sameName, 100);
+        List<LaunchResponse> placed = launchTogether(world, samePosition, 100);
+
+        assertThat(named).filteredOn(response -> response == LaunchResponse.SUCCESS).hasSize(1);
+        assertThat(named).filteredOn(response -> response == LaunchResponse.FAILED_NAME_TAKEN).hasSize(31);
+        assertThat(placed).filteredOn(response -> response == LaunchResponse.SUCCESS).hasSize(1);
+        assertThat(placed).filteredOn(response -> response == LaunchResponse.FAILED_OBSTRUCTED).hasSize(31);
+    }
+
+    @Test
+    void quittingFreesTheName() {
+        World world = new World(200, new ArrayList<>());
+        Robot first = new Robot("HAL", "sniper", 5, 5, 20, new Position(0, 0));
+        assertThat(world.launchRobot(first, 10)).isEqualTo(LaunchResponse.SUCCESS);
+
+        world.removeRobot(first);
+
+        assertThat(world.getRobotByName("HAL")).isNull();
+        Robot second = new Robot("HAL", "sniper", 5, 5, 20, new Position(0, 0));
+        assertThat(world.launchRobot(second, 10)).isEqualTo(LaunchResponse.SUCCESS);
+        assertThat(world.getRobotByName("HAL")).isSameAs(second);
+    }
+}
@@ -0,0 +1,158 @@
+package server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FrameDecoderTest {
+
+    private final List<String> frames = new ArrayList<>();
+
+    /**
+     * Delivers bytes as one read of the client, decoding after every read of the decoder, as the engines do.
+     */
+    private void receive(FrameDecoder decoder, byte[] bytes) throws IOException {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+        while (inputStream.available() > 0) {
+            decoder.readFrom(inputStream);
+            decoder.decode((buffer, offset, length) ->
+                    frames.add(new String(buffer, offset, length, StandardCharsets.UTF_8)));
+        }
+    }
+
+    private void receive(FrameDecoder decoder, String text) throws IOException {
+        receive(decoder, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] lengthPrefixed(String... payloads) {
+        int size = 0;
+        for (String payload : payloads) {
+            size += 4 + payload.length();
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(size);
+        for (String payload : payloads) {
+            bytes.putInt(payload.length()).put(payload.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.array();
+    }
+
+    private static String repeat(char c, int count) {
+        return String.valueOf(c).repeat(count);
+    }
+
+    @Test
+    void splitsSeveralLinesReceivedInOneRead() throws IOException {
+        FrameDecoder decoder = new FrameDecoder("newline", 1024);
+
+        receive(decoder, "{\"command\":\"look\"}\n{\"command\":\"state\"}\n{\"command\":\"fire\"}\n");
+
+        assertThat(frames).containsExactly("{\"command\":\"look\"}", "{\"command\":\"state\"}", "{\"command\":\"fire\"}");
+    }
+
+    @Test
+    void joinsALineReceivedOverSeveralReads() throws IOException {
+        FrameDecoder decoder = new FrameDecoder("newline", 1024);
+
+        receive(decoder, "{\"comm");
+        assertThat(frames).isEmpty();
+        receive(decoder, "and\":\"lo");
+        assertThat(frames).isEmpty();
+        receive(decoder, "ok\"}\n{\"command\"");
+
+        assertThat(frames).containsExactly("{\"command\":\"look\"}");
+    }
+
+    @Test
+    void dropsTheCarriageReturnBeforeALineFeedAndSkipsEmptyLines() throws IOException {
+        FrameDecoder decoder = new FrameDecoder("newline", 1024);
+
+        receive(decoder, "look\r\n\n\r\nfi\rre\n");
+        receive(decoder, "state\r");
+        receive(decoder, "\n");
+
+        assertThat(frames).containsExactly("look", "fi\rre", "state");
+    }
+
+    @Test
+    void refusesALineLongerThanTheMaximumFrameSize() {
+        FrameDecoder decoder = new FrameDecoder("newline", 16);
+
+        assertThatThrownBy(() -> receive(decoder, repeat('x', 17))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void splitsLengthPrefixedFramesAcrossAndWithinReads() throws IOException {
+        FrameDecoder decoder = new FrameDecoder("length", 1024);
+        byte[] bytes = lengthPrefixed("look", "", "state", "fire");
+
+        // the length prefix of the second frame is split as well as the payload of the first.
+        receive(decoder, Arrays.copyOfRange(bytes, 0, 6));
+        receive(decoder, Arrays.copyOfRange(bytes, 6, 10));
+        receive(decoder, Arrays.copyOfRange(bytes, 10, bytes.length));
+
+        assertThat(frames).containsExactly("look", "", "state", "fire");
+    }
+
+    @Test
+    void acceptsAFrameOfTheMaximumSizeAndRefusesLongerOrNegativeLengths() throws IOException {
+        FrameDecoder decoder = new FrameDecoder("length", 16);
+        receive(decoder, lengthPrefixed(repeat('x', 16)));
+        assertThat(frames).containsExactly(repeat('x', 16));
+
+        assertThatThrownBy(() -> receive(new FrameDecoder("length", 16), lengthPrefixed(repeat('x', 17))))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> receive(new FrameDecoder("length", 16), new byte[] {(byte) 0xff, 0, 0, 0}))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void movesAnIncompleteFrameToTheFrontOfAFullBuffer() throws IOException {
+        FrameDecoder decoder = new FrameDecoder("newline", 4096);
+        // a complete line and the start of the next fill the 1024 byte buffer, so the next read compacts it.
+        String first = repeat('a', 999);
+        String second = repeat('b', 100);
+
+        receive(decoder, first + "\n" + second.substring(0, 24));
+        receive(decoder, second.substring(24) + "\n");
+
+        assertThat(frames).containsExactly(first, second);
+    }
+
+    @Test
+    void growsTheBufferForAFrameLargerThanIt() throws IOException {
+        FrameDecoder decoder = new FrameDecoder("newline", 8192);
+        String line = repeat('c', 3000);
+
+        receive(decoder, line.substring(0, 1500));
+        receive(decoder, line.substring(1500) + "\nlook\n");
+
+        assertThat(frames).containsExactly(line, "look");
+    }
+
+    @Test
+    void switchesFramingFromTheNextFrameOnwards() throws IOException {
+        FrameDecoder decoder = new FrameDecoder("newline", 1024);
+        byte[] line = "connect\n".getBytes(StandardCharsets.UTF_8);
+        byte[] frame = lengthPrefixed("look");
+        byte[] bytes = new byte[line.length + frame.length];
+        System.arraycopy(line, 0, bytes, 0, line.length);
+        System.arraycopy(frame, 0, bytes, line.length, frame.length);
+
+        decoder.readFrom(new ByteArrayInputStream(bytes));
+        decoder.decode((buffer, offset, length) -> {
+            frames.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            decoder.setFraming("length");
+        });
+
+        assertThat(frames).containsExactly("connect", "look");
+    }
+}
@@ -0,0 +1,121 @@
+package server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.Test;
+
+class MessageEncoderTest {
+
+    /**
+     * Splits encoded messages into frames the way a client does, returning the flags and payload of each.
+     */
+    private static List<byte[]> frames(byte[]... messages) throws IOException {
+        int size = 0;
+        for (byte[] message : messages) {
+            size += message.length;
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (byte[] message : messages) {
+            System.arraycopy(message, 0, bytes, offset, message.length);
+            offset += message.length;
+        }
+        List<byte[]> frames = new ArrayList<>();
+        FrameDecoder decoder = new FrameDecoder("length", 1 << 20);
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+        while (inputStream.available() > 0) {
+            decoder.readFrom(inputStream);
+            decoder.decode((buffer, start, length) -> frames.add(Arrays.copyOfRange(buffer, start, start + length)));
+        }
+        return frames;
+    }
+
+    private static String payload(byte[] frame) throws DataFormatException {
+        byte[] payload = Arrays.copyOfRange(frame, 1, frame.length);
+        if ((frame[0] & MessageEncoder.FLAG_DEFLATED) == 0) {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            byte[] inflated = new byte[1 << 16];
+            int size = 0;
+            while (!inflater.finished()) {
+                size += inflater.inflate(inflated, size, inflated.length - size);
+            }
+            return new String(inflated, 0, size, StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Builds a JSON message of about the given size that deflates to roughly half of it.
+     */
+    private static String message(int size) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < size) {
+            text.append((char) ('a' + random.nextInt(16)));
+        }
+        return "{\"result\":\"OK\",\"data\":{\"message\":\"" + text + "\"}}";
+    }
+
+    @Test
+    void endsEveryMessageWithALineUnlessFramingWasNegotiated() {
+        MessageEncoder encoder = new MessageEncoder();
+
+        assertThat(new String(encoder.encode("{\"result\":\"OK\"}"), StandardCharsets.UTF_8))
+                .isEqualTo("{\"result\":\"OK\"}" + System.lineSeparator());
+        assertThat(encoder.ping()).isEqualTo(("ping" + System.lineSeparator()).getBytes());
+    }
+
+    @Test
+    void deflatedPayloadsInflateBackToTheOriginalMessage() throws Exception {
+        MessageEncoder encoder = new MessageEncoder();
+        encoder.useDeflate(256);
+        String small = "{\"result\":\"OK\"}";
+        // large enough to deflate to more than the initial deflate buffer, which then has to grow.
+        String large = message(8000);
+        String medium = message(1000);
+
+        List<byte[]> frames = frames(encoder.encode(small), encoder.encode(large), encoder.ping(), encoder.encode(medium));
+
+        try {
+            assertThat(frames).hasSize(4);
+            assertThat(frames.get(0)[0]).isEqualTo((byte) 0);
+            assertThat(payload(frames.get(0))).isEqualTo(small);
+            assertThat(frames.get(1)[0]).isEqualTo((byte) MessageEncoder.FLAG_DEFLATED);
+            assertThat(frames.get(1).length).isLessThan(large.length()).isGreaterThan(1024);
+            assertThat(payload(frames.get(1))).isEqualTo(large);
+            assertThat(frames.get(2)).containsExactly(MessageEncoder.FLAG_PING);
+            assertThat(frames.get(3)[0]).isEqualTo((byte) MessageEncoder.FLAG_DEFLATED);
+            assertThat(payload(frames.get(3))).isEqualTo(medium);
+        } finally {
+            encoder.close();
+        }
+    }
+
+    @Test
+    void sendsPayloadsUncompressedOnceClosed() throws Exception {
+        MessageEncoder encoder = new MessageEncoder();
+        encoder.useDeflate(0);
+        encoder.close();
+        String large = message(2000);
+
+        List<byte[]> frames = frames(encoder.encode(large));
+
+        assertThat(frames.get(0)[0]).isEqualTo((byte) 0);
+        assertThat(payload(frames.get(0))).isEqualTo(large);
+    }
+}
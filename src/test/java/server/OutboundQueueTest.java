@@ -0,0 +1,75 @@
+package server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class OutboundQueueTest {
+
+    private static byte[] message(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> drain(OutboundQueue queue) {
+        List<byte[]> batch = new ArrayList<>();
+        queue.drainTo(batch, Integer.MAX_VALUE);
+        List<String> messages = new ArrayList<>();
+        for (byte[] bytes : batch) {
+            messages.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return messages;
+    }
+
+    @Test
+    void coalescesQueuedStateOfTheSameRobot() {
+        OutboundQueue queue = new OutboundQueue(4, 4, 2, "coalesce");
+        queue.offer(message("a1"), Lane.STATE, "a");
+        queue.offer(message("b1"), Lane.STATE, "b");
+        queue.offer(message("a2"), Lane.STATE, "a");
+
+        assertThat(drain(queue)).containsExactly("a2", "b1");
+        assertThat(queue.getCoalesced()).isEqualTo(1);
+    }
+
+    @Test
+    void keyframeDoesNotOvertakeQueuedDeltasOfTheSameRobot() {
+        OutboundQueue queue = new OutboundQueue(4, 4, 3, "coalesce");
+        queue.offer(message("keyframe a1"), Lane.STATE, "a");
+        queue.offerDelta(message("delta a1"), Lane.STATE, "a");
+        queue.offer(message("b1"), Lane.STATE, "b");
+        queue.offer(message("keyframe a2"), Lane.STATE, "a");
+
+        List<String> written = drain(queue);
+        assertThat(written).doesNotContain("keyframe a1");
+        assertThat(written).last().isEqualTo("keyframe a2");
+        assertThat(queue.getCoalesced()).isZero();
+    }
+
+    @Test
+    void keyframeCoalescesAgainOnceDeltasAreWritten() {
+        OutboundQueue queue = new OutboundQueue(4, 4, 2, "coalesce");
+        queue.offerDelta(message("delta a1"), Lane.STATE, "a");
+        queue.offer(message("keyframe a2"), Lane.STATE, "a");
+        assertThat(queue.poll()).isEqualTo(message("delta a1"));
+
+        queue.offer(message("b1"), Lane.STATE, "b");
+        queue.offer(message("keyframe a3"), Lane.STATE, "a");
+
+        assertThat(drain(queue)).containsExactly("keyframe a3", "b1");
+    }
+
+    @Test
+    void deltasAreNeverCoalesced() {
+        OutboundQueue queue = new OutboundQueue(4, 4, 2, "coalesce");
+        queue.offerDelta(message("delta a1"), Lane.STATE, "a");
+        queue.offerDelta(message("delta a2"), Lane.STATE, "a");
+        queue.offerDelta(message("delta a3"), Lane.STATE, "a");
+
+        assertThat(drain(queue)).containsExactly("delta a2", "delta a3");
+        assertThat(queue.getDropped()).isEqualTo(1);
+    }
+}